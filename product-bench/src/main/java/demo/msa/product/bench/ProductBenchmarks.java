@@ -0,0 +1,59 @@
+package demo.msa.product.bench;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Runs the benchmarks once per thread count and writes all results to one JSON file, which can be
+ * diffed against the file of another release. Build and run with
+ *
+ * <pre>
+ * mvn -pl product-bench -am package -DskipTests
+ * java -jar product-bench/target/benchmarks.jar [-t 1,4] [-rff results.json] [JMH options]
+ * </pre>
+ *
+ * <p>{@code -t} takes a comma-separated list of thread counts and defaults to one thread and one
+ * per core. {@code -rff} names the result file, {@code jmh-result.json} by default. The other
+ * options are passed to JMH, e.g. a benchmark regex or {@code -p catalogSize=1000} to run
+ * fewer parameters.
+ */
+public class ProductBenchmarks {
+
+  public static void main(String[] args) throws Exception {
+    TreeSet<Integer> threadCounts = new TreeSet<>();
+    String resultFile = "jmh-result.json";
+    List<String> jmhArgs = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      if ("-t".equals(args[i]) && i + 1 < args.length) {
+        for (String threads : args[++i].split(",")) {
+          threadCounts.add(Integer.parseInt(threads.trim()));
+        }
+      } else if ("-rff".equals(args[i]) && i + 1 < args.length) {
+        resultFile = args[++i];
+      } else {
+        jmhArgs.add(args[i]);
+      }
+    }
+    if (threadCounts.isEmpty()) {
+      threadCounts.add(1);
+      threadCounts.add(Runtime.getRuntime().availableProcessors());
+    }
+    CommandLineOptions options = new CommandLineOptions(jmhArgs.toArray(new String[0]));
+    List<RunResult> results = new ArrayList<>();
+    for (int threads : threadCounts) {
+      results.addAll(new Runner(new OptionsBuilder().parent(options).threads(threads).build()).run());
+    }
+    File file = new File(resultFile).getAbsoluteFile();
+    ResultFormatFactory.getInstance(ResultFormatType.JSON, file.getPath()).writeOut(results);
+    System.out.println("Results written to " + file);
+  }
+}
@@ -0,0 +1,100 @@
+package demo.msa.product.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import demo.msa.product.json.ProductJsonCache;
+import demo.msa.product.model.Product;
+import demo.msa.product.response.ProductResponse;
+import demo.msa.product.service.ProductCursor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the Jackson work of the product endpoints: writing and reading a single product, and
+ * writing a {@link ProductResponse} page of {@code pageSize} products. The mapper is built the way
+ * Spring MVC builds the one that serves the endpoints. {@code getCachedProductJson} is what
+ * {@code GET /product/{id}} does instead of {@code writeProduct} for an unchanged product.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductJsonBenchmark {
+
+  private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+  private Product product;
+
+  private byte[] productJson;
+
+  private final ProductJsonCache productJsonCache = new ProductJsonCache(objectMapper, 10000);
+
+  @Setup
+  public void createProduct() throws IOException {
+    product = product(1);
+    productJson = objectMapper.writeValueAsBytes(product);
+  }
+
+  @Benchmark
+  public byte[] writeProduct() throws IOException {
+    return objectMapper.writeValueAsBytes(product);
+  }
+
+  @Benchmark
+  public byte[] getCachedProductJson() {
+    return productJsonCache.get(product);
+  }
+
+  @Benchmark
+  public Product readProduct() throws IOException {
+    return objectMapper.readValue(productJson, Product.class);
+  }
+
+  @Benchmark
+  public byte[] writeProductResponse(Page page) throws IOException {
+    return objectMapper.writeValueAsBytes(page.response);
+  }
+
+  @State(Scope.Benchmark)
+  public static class Page {
+
+    @Param({"10", "100", "1000"})
+    public int pageSize;
+
+    ProductResponse response;
+
+    @Setup
+    public void createResponse() {
+      List<Product> productList = new ArrayList<>(pageSize);
+      for (int i = 1; i <= pageSize; i++) {
+        productList.add(product(i));
+      }
+      response = new ProductResponse();
+      response.setProductList(productList);
+      response.setTotal(pageSize);
+      response.setNext(ProductCursor.encode(pageSize));
+    }
+  }
+
+  private static Product product(long id) {
+    Product product = new Product(id, "MacBook Pro " + id, 12000, 1490000000000L + id);
+    product.setVersion(id);
+    return product;
+  }
+}
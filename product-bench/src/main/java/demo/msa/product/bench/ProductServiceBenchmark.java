@@ -0,0 +1,179 @@
+package demo.msa.product.bench;
+
+import demo.msa.product.conf.RepositoryConf;
+import demo.msa.product.model.Product;
+import demo.msa.product.service.ProductService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@link ProductService} calls behind the REST endpoints on a catalog of
+ * {@code catalogSize} products, stored by the {@code repository} engine. Reads and updates pick
+ * products at random; creates are deleted again after every iteration and deletes remove a product
+ * created just for them, so the catalog keeps its size throughout.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductServiceBenchmark {
+
+  private static final int PAGE_SIZE = 100;
+
+  @Param({"1000", "100000"})
+  public int catalogSize;
+
+  /**
+   * One of the {@code product.repository} engines.
+   */
+  @Param({"memory"})
+  public String repository;
+
+  private File directory;
+
+  private AnnotationConfigApplicationContext context;
+
+  private ProductService productService;
+
+  private long firstId;
+
+  @Setup(Level.Trial)
+  public void startService() throws IOException {
+    directory = Files.createTempDirectory("product-bench").toFile();
+    Map<String, Object> properties = new HashMap<>();
+    properties.put("product.repository", repository);
+    properties.put("product.mapped.file", new File(directory, "products.dat").getPath());
+    properties.put("product.h2.url", "jdbc:h2:" + new File(directory, "h2").getAbsolutePath());
+    context = new AnnotationConfigApplicationContext();
+    context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", properties));
+    context.register(RepositoryConf.class, ProductService.class);
+    context.refresh();
+    productService = context.getBean(ProductService.class);
+    long[] ids = new long[1];
+    productService.batch(() -> {
+      ids[0] = productService.createProduct("Product 0", 0).getId();
+      for (int i = 1; i < catalogSize; i++) {
+        productService.createProduct("Product " + i, i % 10000);
+      }
+    });
+    firstId = ids[0];
+  }
+
+  @TearDown(Level.Trial)
+  public void stopService() throws IOException {
+    context.close();
+    delete(directory);
+  }
+
+  @Benchmark
+  public Product getProductById() {
+    return productService.getProductById(randomId());
+  }
+
+  @Benchmark
+  public Product createProduct(Created created) {
+    Product product = productService.createProduct("New product", ThreadLocalRandom.current().nextInt(10000));
+    created.ids.add(product.getId());
+    return product;
+  }
+
+  @Benchmark
+  public Product updateProduct(Update update) {
+    update.fieldMap.put("price", ThreadLocalRandom.current().nextInt(10000));
+    return productService.updateProduct(randomId(), update.fieldMap);
+  }
+
+  @Benchmark
+  public boolean deleteProductById(Deleted deleted) {
+    return productService.deleteProductById(deleted.id);
+  }
+
+  @Benchmark
+  public List<Product> getProductList() {
+    return productService.getProductList();
+  }
+
+  @Benchmark
+  public List<Product> getProductListPage() {
+    return productService.getProductList(randomId() - 1, PAGE_SIZE);
+  }
+
+  private long randomId() {
+    return firstId + ThreadLocalRandom.current().nextInt(catalogSize);
+  }
+
+  /**
+   * The products a thread created in the current iteration.
+   */
+  @State(Scope.Thread)
+  public static class Created {
+
+    final List<Long> ids = new ArrayList<>();
+
+    @TearDown(Level.Iteration)
+    public void deleteCreated(ProductServiceBenchmark benchmark) {
+      benchmark.productService.batch(() -> {
+        for (Long id : ids) {
+          benchmark.productService.deleteProductById(id);
+        }
+      });
+      ids.clear();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Update {
+
+    final Map<String, Object> fieldMap = new HashMap<>();
+  }
+
+  /**
+   * A product for the next delete to remove. Creating it per invocation costs a timestamp pair on
+   * top of the delete, which is small next to the delete itself.
+   */
+  @State(Scope.Thread)
+  public static class Deleted {
+
+    long id;
+
+    @Setup(Level.Invocation)
+    public void createProduct(ProductServiceBenchmark benchmark) {
+      id = benchmark.productService.createProduct("Deleted product", 1).getId();
+    }
+  }
+
+  private static void delete(File file) throws IOException {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        delete(child);
+      }
+    }
+    Files.deleteIfExists(file.toPath());
+  }
+}
@@ -0,0 +1,105 @@
+package demo.msa.product.bench;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import demo.msa.product.converter.ProductProtobufHttpMessageConverter;
+import demo.msa.product.model.Product;
+import demo.msa.product.response.ProductResponse;
+import demo.msa.product.service.ProductCursor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the wire formats the product endpoints negotiate by writing and reading a
+ * {@link ProductResponse} page of {@code pageSize} products, with mappers set up the way
+ * {@code WebConf} sets up the converters. The encoded size of the page is printed at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductWireFormatBenchmark {
+
+  @Param({"json", "smile", "cbor", "protobuf"})
+  public String format;
+
+  @Param({"1", "100", "1000"})
+  public int pageSize;
+
+  private ProductResponse response;
+
+  private byte[] encoded;
+
+  private ObjectWriter writer;
+
+  private ObjectReader reader;
+
+  @Setup
+  public void createPage() throws IOException {
+    if ("protobuf".equals(format)) {
+      ProductProtobufHttpMessageConverter converter = new ProductProtobufHttpMessageConverter(new ProtobufMapper());
+      writer = converter.getWriter(ProductResponse.class);
+      reader = converter.getReader(ProductResponse.class);
+    } else {
+      ObjectMapper objectMapper = new ObjectMapper(factory(format));
+      Jackson2ObjectMapperBuilder.json().configure(objectMapper);
+      writer = objectMapper.writerFor(ProductResponse.class);
+      reader = objectMapper.readerFor(ProductResponse.class);
+    }
+    List<Product> productList = new ArrayList<>(pageSize);
+    for (int i = 1; i <= pageSize; i++) {
+      Product product = new Product(i, "MacBook Pro " + i, 12000, 1490000000000L + i);
+      product.setVersion(i);
+      productList.add(product);
+    }
+    response = new ProductResponse();
+    response.setProductList(productList);
+    response.setTotal(pageSize);
+    response.setNext(ProductCursor.encode(pageSize));
+    encoded = writer.writeValueAsBytes(response);
+    System.out.println(format + " page of " + pageSize + ": " + encoded.length + " bytes");
+  }
+
+  @Benchmark
+  public byte[] writeProductResponse() throws IOException {
+    return writer.writeValueAsBytes(response);
+  }
+
+  @Benchmark
+  public ProductResponse readProductResponse() throws IOException {
+    return reader.readValue(encoded);
+  }
+
+  private static JsonFactory factory(String format) {
+    switch (format) {
+      case "smile":
+        return new SmileFactory();
+      case "cbor":
+        return new CBORFactory();
+      default:
+        return new JsonFactory();
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package demo.msa.product.service;
+
+import demo.msa.product.model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures applying the field map of a {@code PUT /product/{id}} to a product through
+ * {@link ProductPatcher}, against the reflective lookup {@code updateProduct} used before, which is
+ * kept here as {@code patchReflectively}. It lives in the service package because the patcher is
+ * package-private.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductPatchBenchmark {
+
+  private final Product product = new Product(1, "MacBook", 10000, 1490000000000L);
+
+  private final Map<String, Object> fieldMap = new LinkedHashMap<>();
+
+  {
+    fieldMap.put("price", 12000);
+    fieldMap.put("name", "MacBook Pro");
+  }
+
+  @Benchmark
+  public Product patch() {
+    ProductPatcher.patch(product, fieldMap);
+    return product;
+  }
+
+  @Benchmark
+  public Product patchReflectively() {
+    for (Map.Entry<String, Object> fieldEntry : fieldMap.entrySet()) {
+      Object fieldValue = fieldEntry.getValue();
+      if (fieldValue != null) {
+        Field field = ReflectionUtils.findField(Product.class, fieldEntry.getKey());
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, product, fieldValue);
+      }
+    }
+    return product;
+  }
+}
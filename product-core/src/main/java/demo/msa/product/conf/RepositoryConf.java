@@ -0,0 +1,76 @@
+package demo.msa.product.conf;
+
+import demo.msa.product.repository.ColumnarProductRepository;
+import demo.msa.product.repository.JdbcProductRepository;
+import demo.msa.product.repository.JournaledProductRepository;
+import demo.msa.product.repository.MappedProductRepository;
+import demo.msa.product.repository.MemoryProductRepository;
+import demo.msa.product.repository.ProductRepository;
+import demo.msa.product.service.ProductCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.File;
+import java.io.IOException;
+
+@Configuration
+public class RepositoryConf {
+
+  @Value("${product.repository:memory}")
+  private String repositoryType;
+
+  @Value("${product.mapped.file:data/products.dat}")
+  private String mappedFile;
+
+  @Value("${product.h2.url:jdbc:h2:mem:product;DB_CLOSE_DELAY=-1}")
+  private String h2Url;
+
+  @Value("${product.h2.username:sa}")
+  private String h2Username;
+
+  @Value("${product.h2.password:}")
+  private String h2Password;
+
+  @Value("${product.journal.dir:}")
+  private String journalDir;
+
+  @Value("${product.journal.snapshot-interval:100000}")
+  private long snapshotInterval;
+
+  @Value("${product.cache.maximum-size:10000}")
+  private long cacheMaximumSize;
+
+  @Value("${product.cache.maximum-weight:16777216}")
+  private long cacheMaximumWeight;
+
+  @Bean
+  public ProductCache productCache() {
+    return new ProductCache(cacheMaximumSize, cacheMaximumWeight);
+  }
+
+  @Bean
+  public ProductRepository productRepository() throws IOException {
+    ProductRepository repository;
+    switch (repositoryType) {
+      case "memory":
+        repository = new MemoryProductRepository();
+        break;
+      case "columnar":
+        repository = new ColumnarProductRepository();
+        break;
+      case "mapped":
+        repository = new MappedProductRepository(new File(mappedFile));
+        break;
+      case "h2":
+        repository = new JdbcProductRepository(h2Url, h2Username, h2Password);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown product.repository: " + repositoryType);
+    }
+    if (!journalDir.isEmpty()) {
+      repository = new JournaledProductRepository(repository, new File(journalDir), snapshotInterval);
+    }
+    return repository;
+  }
+}
@@ -6,6 +6,7 @@ public class Product {
   private String name;
   private int price;
   private long created;
+  private long version;
 
   public Product() {
   }
@@ -48,4 +49,12 @@ public class Product {
   public void setCreated(long created) {
     this.created = created;
   }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public void setVersion(long version) {
+    this.version = version;
+  }
 }
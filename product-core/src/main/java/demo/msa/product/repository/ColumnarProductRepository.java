@@ -0,0 +1,312 @@
+package demo.msa.product.repository;
+
+import demo.msa.product.model.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps products in parallel primitive arrays instead of one object per product, with names
+ * dictionary-encoded. Rows are kept in ascending id order, so lookups are a binary search over
+ * {@code ids}, and {@link Product} objects are only created when a row is read. Name codes are
+ * reference-counted, so a name no row uses any more is dropped and its code reused.
+ */
+public class ColumnarProductRepository implements ProductRepository {
+
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private static final int NULL_NAME = -1;
+
+  private static final int REMOVED = -2;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private long[] ids = new long[INITIAL_CAPACITY];
+  private int[] nameCodes = new int[INITIAL_CAPACITY];
+  private int[] prices = new int[INITIAL_CAPACITY];
+  private long[] createds = new long[INITIAL_CAPACITY];
+  private long[] versions = new long[INITIAL_CAPACITY];
+
+  // rows in use, including removed rows that have not been compacted yet
+  private int rows;
+
+  // live rows
+  private int size;
+
+  private final Map<String, Integer> nameDictionary = new HashMap<>();
+  private final List<String> names = new ArrayList<>();
+
+  // rows using each name code
+  private int[] nameRefs = new int[INITIAL_CAPACITY];
+
+  // codes of dropped names, to be reused
+  private int[] freeNameCodes = new int[INITIAL_CAPACITY];
+  private int freeNameCount;
+
+  @Override
+  public Product findById(long id) {
+    lock.readLock().lock();
+    try {
+      int row = Arrays.binarySearch(ids, 0, rows, id);
+      if (row >= 0 && nameCodes[row] != REMOVED) {
+        return toProduct(row);
+      }
+      return null;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public List<Product> findAllById(List<Long> productIds) {
+    lock.readLock().lock();
+    try {
+      List<Product> productList = new ArrayList<>(productIds.size());
+      for (Long id : productIds) {
+        int row = Arrays.binarySearch(ids, 0, rows, id);
+        productList.add(row >= 0 && nameCodes[row] != REMOVED ? toProduct(row) : null);
+      }
+      return productList;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void save(Product product) {
+    lock.writeLock().lock();
+    try {
+      int row = Arrays.binarySearch(ids, 0, rows, product.getId());
+      int nameCode = encodeName(product.getName());
+      if (row < 0) {
+        row = -(row + 1);
+        insertRow(row);
+      } else if (nameCodes[row] == REMOVED) {
+        size++;
+      } else {
+        releaseName(nameCodes[row]);
+      }
+      ids[row] = product.getId();
+      nameCodes[row] = nameCode;
+      prices[row] = product.getPrice();
+      createds[row] = product.getCreated();
+      versions[row] = product.getVersion();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean replace(long expectedVersion, Product product) {
+    lock.writeLock().lock();
+    try {
+      int row = Arrays.binarySearch(ids, 0, rows, product.getId());
+      if (row < 0 || nameCodes[row] == REMOVED || versions[row] != expectedVersion) {
+        return false;
+      }
+      int nameCode = encodeName(product.getName());
+      releaseName(nameCodes[row]);
+      nameCodes[row] = nameCode;
+      prices[row] = product.getPrice();
+      createds[row] = product.getCreated();
+      versions[row] = product.getVersion();
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean deleteById(long id) {
+    lock.writeLock().lock();
+    try {
+      int row = Arrays.binarySearch(ids, 0, rows, id);
+      if (row < 0 || nameCodes[row] == REMOVED) {
+        return false;
+      }
+      removeRow(row);
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean deleteById(long id, long expectedVersion) {
+    lock.writeLock().lock();
+    try {
+      int row = Arrays.binarySearch(ids, 0, rows, id);
+      if (row < 0 || nameCodes[row] == REMOVED || versions[row] != expectedVersion) {
+        return false;
+      }
+      removeRow(row);
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public List<Product> findAll() {
+    lock.readLock().lock();
+    try {
+      List<Product> productList = new ArrayList<>(size);
+      for (int row = 0; row < rows; row++) {
+        if (nameCodes[row] != REMOVED) {
+          productList.add(toProduct(row));
+        }
+      }
+      return productList;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public List<Product> findAfter(long afterId, int limit) {
+    lock.readLock().lock();
+    try {
+      int row = Arrays.binarySearch(ids, 0, rows, afterId);
+      row = row >= 0 ? row + 1 : -(row + 1);
+      List<Product> productList = new ArrayList<>(Math.min(limit, 1024));
+      for (; row < rows && productList.size() < limit; row++) {
+        if (nameCodes[row] != REMOVED) {
+          productList.add(toProduct(row));
+        }
+      }
+      return productList;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public int count() {
+    lock.readLock().lock();
+    try {
+      return size;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public long maxId() {
+    lock.readLock().lock();
+    try {
+      for (int row = rows - 1; row >= 0; row--) {
+        if (nameCodes[row] != REMOVED) {
+          return ids[row];
+        }
+      }
+      return 0;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the number of distinct names the dictionary holds.
+   */
+  public int getNameCount() {
+    lock.readLock().lock();
+    try {
+      return nameDictionary.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private Product toProduct(int row) {
+    int nameCode = nameCodes[row];
+    String name = nameCode == NULL_NAME ? null : names.get(nameCode);
+    Product product = new Product(ids[row], name, prices[row], createds[row]);
+    product.setVersion(versions[row]);
+    return product;
+  }
+
+  private int encodeName(String name) {
+    if (name == null) {
+      return NULL_NAME;
+    }
+    Integer nameCode = nameDictionary.get(name);
+    if (nameCode == null) {
+      if (freeNameCount > 0) {
+        nameCode = freeNameCodes[--freeNameCount];
+        names.set(nameCode, name);
+      } else {
+        nameCode = names.size();
+        names.add(name);
+        if (nameCode == nameRefs.length) {
+          nameRefs = Arrays.copyOf(nameRefs, nameCode * 2);
+        }
+      }
+      nameDictionary.put(name, nameCode);
+    }
+    nameRefs[nameCode]++;
+    return nameCode;
+  }
+
+  private void releaseName(int nameCode) {
+    if (nameCode == NULL_NAME || --nameRefs[nameCode] > 0) {
+      return;
+    }
+    nameDictionary.remove(names.get(nameCode));
+    names.set(nameCode, null);
+    if (freeNameCount == freeNameCodes.length) {
+      freeNameCodes = Arrays.copyOf(freeNameCodes, freeNameCount * 2);
+    }
+    freeNameCodes[freeNameCount++] = nameCode;
+  }
+
+  private void insertRow(int row) {
+    if (rows == ids.length) {
+      int capacity = rows * 2;
+      ids = Arrays.copyOf(ids, capacity);
+      nameCodes = Arrays.copyOf(nameCodes, capacity);
+      prices = Arrays.copyOf(prices, capacity);
+      createds = Arrays.copyOf(createds, capacity);
+      versions = Arrays.copyOf(versions, capacity);
+    }
+    // ids normally arrive in ascending order, so this shift is rare
+    int tail = rows - row;
+    if (tail > 0) {
+      System.arraycopy(ids, row, ids, row + 1, tail);
+      System.arraycopy(nameCodes, row, nameCodes, row + 1, tail);
+      System.arraycopy(prices, row, prices, row + 1, tail);
+      System.arraycopy(createds, row, createds, row + 1, tail);
+      System.arraycopy(versions, row, versions, row + 1, tail);
+    }
+    rows++;
+    size++;
+  }
+
+  private void removeRow(int row) {
+    releaseName(nameCodes[row]);
+    nameCodes[row] = REMOVED;
+    size--;
+    if (rows > INITIAL_CAPACITY && size < rows / 2) {
+      compact();
+    }
+  }
+
+  private void compact() {
+    int live = 0;
+    for (int row = 0; row < rows; row++) {
+      if (nameCodes[row] != REMOVED) {
+        ids[live] = ids[row];
+        nameCodes[live] = nameCodes[row];
+        prices[live] = prices[row];
+        createds[live] = createds[row];
+        versions[live] = versions[row];
+        live++;
+      }
+    }
+    rows = live;
+  }
+}
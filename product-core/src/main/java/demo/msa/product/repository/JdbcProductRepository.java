@@ -0,0 +1,258 @@
+package demo.msa.product.repository;
+
+import demo.msa.product.model.Product;
+import org.h2.jdbcx.JdbcConnectionPool;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores products in a {@code product} table of an embedded H2 database, over plain JDBC. Each call
+ * runs in its own transaction on a pooled connection, except inside {@link #batch(Runnable)}, where
+ * the calling thread's writes share one transaction that commits at the end, and other connections
+ * see none of them until then. The list methods are single statements, which H2 runs against a
+ * consistent snapshot of the table.
+ *
+ * <p>Database errors surface as {@link IllegalStateException}.
+ */
+public class JdbcProductRepository implements ProductRepository, Closeable {
+
+  private static final String COLUMNS = "id, name, price, created, version";
+
+  // findAllById binds at most this many ids per statement
+  private static final int MAX_IN_IDS = 1000;
+
+  private final JdbcConnectionPool pool;
+
+  // the connection of the batch the calling thread runs, if any
+  private final ThreadLocal<Connection> batchConnection = new ThreadLocal<>();
+
+  public JdbcProductRepository(String url, String username, String password) {
+    pool = JdbcConnectionPool.create(url, username, password);
+    execute(connection -> {
+      try (Statement statement = connection.createStatement()) {
+        statement.execute("CREATE TABLE IF NOT EXISTS product ("
+            + "id BIGINT PRIMARY KEY, "
+            + "name VARCHAR, "
+            + "price INT NOT NULL, "
+            + "created BIGINT NOT NULL, "
+            + "version BIGINT NOT NULL)");
+      }
+      return null;
+    });
+  }
+
+  @Override
+  public Product findById(long id) {
+    return execute(connection -> {
+      try (PreparedStatement statement = connection.prepareStatement("SELECT " + COLUMNS + " FROM product WHERE id = ?")) {
+        statement.setLong(1, id);
+        try (ResultSet resultSet = statement.executeQuery()) {
+          return resultSet.next() ? toProduct(resultSet) : null;
+        }
+      }
+    });
+  }
+
+  @Override
+  public List<Product> findAllById(List<Long> productIds) {
+    Map<Long, Product> found = new HashMap<>();
+    for (int from = 0; from < productIds.size(); from += MAX_IN_IDS) {
+      List<Long> ids = productIds.subList(from, Math.min(from + MAX_IN_IDS, productIds.size()));
+      StringBuilder sql = new StringBuilder("SELECT " + COLUMNS + " FROM product WHERE id IN (");
+      for (int i = 0; i < ids.size(); i++) {
+        sql.append(i == 0 ? "?" : ", ?");
+      }
+      sql.append(')');
+      execute(connection -> {
+        try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+          for (int i = 0; i < ids.size(); i++) {
+            statement.setLong(i + 1, ids.get(i));
+          }
+          try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+              Product product = toProduct(resultSet);
+              found.put(product.getId(), product);
+            }
+          }
+        }
+        return null;
+      });
+    }
+    List<Product> productList = new ArrayList<>(productIds.size());
+    for (Long id : productIds) {
+      productList.add(found.get(id));
+    }
+    return productList;
+  }
+
+  @Override
+  public void save(Product product) {
+    execute(connection -> {
+      try (PreparedStatement statement = connection.prepareStatement("MERGE INTO product (" + COLUMNS + ") KEY (id) VALUES (?, ?, ?, ?, ?)")) {
+        statement.setLong(1, product.getId());
+        setName(statement, 2, product.getName());
+        statement.setInt(3, product.getPrice());
+        statement.setLong(4, product.getCreated());
+        statement.setLong(5, product.getVersion());
+        return statement.executeUpdate();
+      }
+    });
+  }
+
+  @Override
+  public boolean replace(long expectedVersion, Product product) {
+    return execute(connection -> {
+      try (PreparedStatement statement = connection.prepareStatement(
+          "UPDATE product SET name = ?, price = ?, created = ?, version = ? WHERE id = ? AND version = ?")) {
+        setName(statement, 1, product.getName());
+        statement.setInt(2, product.getPrice());
+        statement.setLong(3, product.getCreated());
+        statement.setLong(4, product.getVersion());
+        statement.setLong(5, product.getId());
+        statement.setLong(6, expectedVersion);
+        return statement.executeUpdate() == 1;
+      }
+    });
+  }
+
+  @Override
+  public boolean deleteById(long id) {
+    return execute(connection -> {
+      try (PreparedStatement statement = connection.prepareStatement("DELETE FROM product WHERE id = ?")) {
+        statement.setLong(1, id);
+        return statement.executeUpdate() == 1;
+      }
+    });
+  }
+
+  @Override
+  public boolean deleteById(long id, long expectedVersion) {
+    return execute(connection -> {
+      try (PreparedStatement statement = connection.prepareStatement("DELETE FROM product WHERE id = ? AND version = ?")) {
+        statement.setLong(1, id);
+        statement.setLong(2, expectedVersion);
+        return statement.executeUpdate() == 1;
+      }
+    });
+  }
+
+  @Override
+  public List<Product> findAll() {
+    return findAfter(Long.MIN_VALUE, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public List<Product> findAfter(long afterId, int limit) {
+    return execute(connection -> {
+      try (PreparedStatement statement = connection.prepareStatement(
+          "SELECT " + COLUMNS + " FROM product WHERE id > ? ORDER BY id LIMIT ?")) {
+        statement.setLong(1, afterId);
+        statement.setInt(2, limit);
+        try (ResultSet resultSet = statement.executeQuery()) {
+          List<Product> productList = new ArrayList<>();
+          while (resultSet.next()) {
+            productList.add(toProduct(resultSet));
+          }
+          return productList;
+        }
+      }
+    });
+  }
+
+  @Override
+  public int count() {
+    return execute(connection -> {
+      try (Statement statement = connection.createStatement();
+           ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM product")) {
+        resultSet.next();
+        return resultSet.getInt(1);
+      }
+    });
+  }
+
+  @Override
+  public long maxId() {
+    return execute(connection -> {
+      try (Statement statement = connection.createStatement();
+           ResultSet resultSet = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM product")) {
+        resultSet.next();
+        return resultSet.getLong(1);
+      }
+    });
+  }
+
+  /**
+   * Runs the writes in one transaction, which is rolled back if they throw.
+   */
+  @Override
+  public void batch(Runnable writes) {
+    if (batchConnection.get() != null) {
+      writes.run();
+      return;
+    }
+    try (Connection connection = pool.getConnection()) {
+      connection.setAutoCommit(false);
+      batchConnection.set(connection);
+      try {
+        writes.run();
+        connection.commit();
+      } catch (RuntimeException | Error e) {
+        connection.rollback();
+        throw e;
+      } finally {
+        batchConnection.remove();
+        connection.setAutoCommit(true);
+      }
+    } catch (SQLException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public void close() {
+    pool.dispose();
+  }
+
+  private <T> T execute(SqlFunction<T> function) {
+    try {
+      Connection connection = batchConnection.get();
+      if (connection != null) {
+        return function.apply(connection);
+      }
+      try (Connection pooled = pool.getConnection()) {
+        return function.apply(pooled);
+      }
+    } catch (SQLException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void setName(PreparedStatement statement, int index, String name) throws SQLException {
+    if (name != null) {
+      statement.setString(index, name);
+    } else {
+      statement.setNull(index, Types.VARCHAR);
+    }
+  }
+
+  private static Product toProduct(ResultSet resultSet) throws SQLException {
+    Product product = new Product(resultSet.getLong(1), resultSet.getString(2), resultSet.getInt(3), resultSet.getLong(4));
+    product.setVersion(resultSet.getLong(5));
+    return product;
+  }
+
+  private interface SqlFunction<T> {
+
+    T apply(Connection connection) throws SQLException;
+  }
+}
@@ -0,0 +1,357 @@
+package demo.msa.product.repository;
+
+import demo.msa.product.model.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Makes another repository durable with a write-ahead log and periodic snapshots.
+ * <p>
+ * Every write is applied to the delegate and appended to the current log segment, and returns once
+ * the log is fsynced (see {@link ProductLog}). Every {@code snapshotInterval} writes the log is
+ * rotated to segment N and the delegate is written out as {@code snapshot-N.dat}; segments before N
+ * are then deleted. On startup the latest snapshot is memory-mapped into the delegate and segments
+ * N and later are replayed. Records are full product states or deletes, so replaying a record that
+ * the snapshot already contains is harmless.
+ */
+public class JournaledProductRepository implements ProductRepository, Closeable {
+
+  private static final Logger logger = LoggerFactory.getLogger(JournaledProductRepository.class);
+
+  private static final Pattern SEGMENT_PATTERN = Pattern.compile("wal-(\\d+)\\.log");
+
+  private static final Pattern SNAPSHOT_PATTERN = Pattern.compile("snapshot-(\\d+)\\.dat");
+
+  private static final int SNAPSHOT_PAGE_SIZE = 10000;
+
+  private final ProductRepository delegate;
+
+  private final File directory;
+
+  private final long snapshotInterval;
+
+  private final Object writeLock = new Object();
+
+  private final Object snapshotLock = new Object();
+
+  private final AtomicBoolean snapshotPending = new AtomicBoolean();
+
+  private final ExecutorService snapshotExecutor = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "product-snapshot");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final ProductLog log;
+
+  // guarded by writeLock
+  private long writesSinceSnapshot;
+
+  // the writes of the current thread's batch, unset outside a batch
+  private final ThreadLocal<Batch> currentBatch = new ThreadLocal<>();
+
+  public JournaledProductRepository(ProductRepository delegate, File directory, long snapshotInterval) throws IOException {
+    this.delegate = delegate;
+    this.directory = directory;
+    this.snapshotInterval = snapshotInterval;
+    Files.createDirectories(directory.toPath());
+    this.log = new ProductLog(directory, recover());
+  }
+
+  @Override
+  public Product findById(long id) {
+    return delegate.findById(id);
+  }
+
+  @Override
+  public List<Product> findAllById(List<Long> ids) {
+    return delegate.findAllById(ids);
+  }
+
+  @Override
+  public void save(Product product) {
+    byte[] record = ProductRecords.save(product);
+    long sequence;
+    synchronized (writeLock) {
+      delegate.save(product);
+      sequence = append(record);
+    }
+    sync(product.getId(), sequence);
+  }
+
+  @Override
+  public boolean replace(long expectedVersion, Product product) {
+    byte[] record = ProductRecords.save(product);
+    long sequence;
+    synchronized (writeLock) {
+      if (!delegate.replace(expectedVersion, product)) {
+        return false;
+      }
+      sequence = append(record);
+    }
+    sync(product.getId(), sequence);
+    return true;
+  }
+
+  @Override
+  public boolean deleteById(long id) {
+    long sequence;
+    synchronized (writeLock) {
+      if (!delegate.deleteById(id)) {
+        return false;
+      }
+      sequence = append(ProductRecords.delete(id));
+    }
+    sync(id, sequence);
+    return true;
+  }
+
+  @Override
+  public boolean deleteById(long id, long expectedVersion) {
+    long sequence;
+    synchronized (writeLock) {
+      if (!delegate.deleteById(id, expectedVersion)) {
+        return false;
+      }
+      sequence = append(ProductRecords.delete(id));
+    }
+    sync(id, sequence);
+    return true;
+  }
+
+  @Override
+  public List<Product> findAll() {
+    return delegate.findAll();
+  }
+
+  @Override
+  public List<Product> findAfter(long afterId, int limit) {
+    return delegate.findAfter(afterId, limit);
+  }
+
+  @Override
+  public int count() {
+    return delegate.count();
+  }
+
+  @Override
+  public long maxId() {
+    return delegate.maxId();
+  }
+
+  @Override
+  public int maxNameBytes() {
+    return delegate.maxNameBytes();
+  }
+
+  /**
+   * Runs the writes in a batch of the delegate, holding the write lock throughout, so no other write
+   * waits in the delegate on rows the batch holds while the batch waits on the lock, and syncs the
+   * log once at the end. If the batch fails, the products it wrote are logged again as the delegate
+   * now has them, since a transactional delegate rolled back writes the log already has.
+   */
+  @Override
+  public void batch(Runnable writes) {
+    if (currentBatch.get() != null) {
+      writes.run();
+      return;
+    }
+    Batch batch = new Batch();
+    currentBatch.set(batch);
+    try {
+      synchronized (writeLock) {
+        try {
+          delegate.batch(writes);
+        } catch (RuntimeException | Error e) {
+          for (long id : batch.ids) {
+            Product product = delegate.findById(id);
+            batch.sequence = append(product != null ? ProductRecords.save(product) : ProductRecords.delete(id));
+          }
+          throw e;
+        }
+      }
+    } finally {
+      currentBatch.remove();
+      sync(batch.sequence);
+    }
+  }
+
+  /**
+   * Writes a snapshot of the current state and deletes the log segments it covers.
+   */
+  public void snapshot() throws IOException {
+    synchronized (snapshotLock) {
+      long segment;
+      synchronized (writeLock) {
+        segment = log.rotate();
+        writesSinceSnapshot = 0;
+      }
+      File snapshotFile = new File(directory, snapshotName(segment));
+      File tempFile = new File(directory, snapshotFile.getName() + ".tmp");
+      try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+        long afterId = 0;
+        List<Product> page;
+        while (!(page = delegate.findAfter(afterId, SNAPSHOT_PAGE_SIZE)).isEmpty()) {
+          for (Product product : page) {
+            byte[] record = ProductRecords.save(product);
+            if (buffer.remaining() < ProductRecords.frameSize(record)) {
+              write(channel, buffer);
+              if (buffer.capacity() < ProductRecords.frameSize(record)) {
+                buffer = ByteBuffer.allocate(ProductRecords.frameSize(record));
+              }
+            }
+            ProductRecords.writeFrame(buffer, record);
+          }
+          afterId = page.get(page.size() - 1).getId();
+        }
+        write(channel, buffer);
+        channel.force(true);
+      }
+      Files.move(tempFile.toPath(), snapshotFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      for (Map.Entry<Long, File> entry : list(SNAPSHOT_PATTERN).headMap(segment).entrySet()) {
+        Files.deleteIfExists(entry.getValue().toPath());
+      }
+      for (Map.Entry<Long, File> entry : list(SEGMENT_PATTERN).headMap(segment).entrySet()) {
+        Files.deleteIfExists(entry.getValue().toPath());
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    snapshotExecutor.shutdown();
+    try {
+      snapshotExecutor.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    log.close();
+    if (delegate instanceof Closeable) {
+      ((Closeable) delegate).close();
+    }
+  }
+
+  /**
+   * Loads the latest snapshot and replays the log segments after it. Returns the segment number the
+   * log should continue with.
+   */
+  private long recover() throws IOException {
+    for (File tempFile : directory.listFiles((dir, name) -> name.endsWith(".tmp"))) {
+      Files.deleteIfExists(tempFile.toPath());
+    }
+    long firstSegment = 0;
+    TreeMap<Long, File> snapshots = list(SNAPSHOT_PATTERN);
+    if (!snapshots.isEmpty()) {
+      firstSegment = snapshots.lastKey();
+      try (FileChannel channel = FileChannel.open(snapshots.lastEntry().getValue().toPath(), StandardOpenOption.READ)) {
+        ProductRecords.replay(channel, 0, delegate);
+      }
+    }
+    long nextSegment = firstSegment;
+    for (Map.Entry<Long, File> entry : list(SEGMENT_PATTERN).tailMap(firstSegment).entrySet()) {
+      if (entry.getValue().length() == 0 && entry.getKey() > firstSegment) {
+        Files.delete(entry.getValue().toPath());
+        continue;
+      }
+      try (FileChannel channel = FileChannel.open(entry.getValue().toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        long validLength = ProductRecords.replay(channel, 0, delegate);
+        if (validLength < channel.size()) {
+          logger.warn("Truncating torn tail of {} at offset {}", entry.getValue(), validLength);
+          channel.truncate(validLength);
+        }
+      }
+      nextSegment = entry.getKey() + 1;
+    }
+    return nextSegment;
+  }
+
+  private long append(byte[] record) {
+    try {
+      long sequence = log.append(record);
+      if (++writesSinceSnapshot >= snapshotInterval && snapshotPending.compareAndSet(false, true)) {
+        snapshotExecutor.execute(() -> {
+          snapshotPending.set(false);
+          try {
+            snapshot();
+          } catch (IOException e) {
+            logger.error("Product snapshot failed", e);
+          }
+        });
+      }
+      return sequence;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void sync(long id, long sequence) {
+    Batch batch = currentBatch.get();
+    if (batch != null) {
+      batch.ids.add(id);
+      batch.sequence = Math.max(batch.sequence, sequence);
+      return;
+    }
+    sync(sequence);
+  }
+
+  private void sync(long sequence) {
+    try {
+      log.sync(sequence);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private TreeMap<Long, File> list(Pattern pattern) {
+    TreeMap<Long, File> files = new TreeMap<>();
+    for (File file : directory.listFiles()) {
+      Matcher matcher = pattern.matcher(file.getName());
+      if (matcher.matches()) {
+        files.put(Long.parseLong(matcher.group(1)), file);
+      }
+    }
+    return files;
+  }
+
+  private static String snapshotName(long segment) {
+    return String.format("snapshot-%016d.dat", segment);
+  }
+
+  private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  private static final class Batch {
+
+    // highest log sequence the batch appended
+    long sequence;
+
+    final Set<Long> ids = new LinkedHashSet<>();
+  }
+}
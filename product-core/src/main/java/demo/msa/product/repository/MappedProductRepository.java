@@ -0,0 +1,396 @@
+package demo.msa.product.repository;
+
+import demo.msa.product.model.Product;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Stores products in fixed-size slots of a memory-mapped file, with an id to slot index on the
+ * heap that is rebuilt by scanning the file on open. Writes go straight to the page cache, so
+ * products survive a restart of the process; they reach the disk when the OS writes the pages back
+ * or on {@link #close()}. Wrap the repository in a {@link JournaledProductRepository} to make every
+ * write durable.
+ *
+ * <p>Slot layout: {@code state:1 crc:4 id:8 price:4 created:8 version:8 nameLength:2 name}, with
+ * a name length of -1 for a null name. A write never overwrites a live slot: it fills a free slot,
+ * marks it live with its last byte, and only then frees the old slot. If the process dies between
+ * the two, the file holds both versions and the scan keeps the one with the higher version.
+ *
+ * <p>Readers share a read lock and writers take the write lock, so the list methods read a single
+ * point in time.
+ */
+public class MappedProductRepository implements ProductRepository, Closeable {
+
+  static final int SLOT_SIZE = 256;
+
+  private static final int HEADER_SIZE = 35;
+
+  /**
+   * The longest name that fits in a slot, in UTF-8 bytes.
+   */
+  public static final int MAX_NAME_BYTES = SLOT_SIZE - HEADER_SIZE;
+
+  private static final int SEGMENT_SLOTS = 1 << 16;
+
+  private static final long SEGMENT_SIZE = (long) SEGMENT_SLOTS * SLOT_SIZE;
+
+  private static final byte FREE = 0;
+
+  private static final byte LIVE = 1;
+
+  private final FileChannel channel;
+
+  private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+  // id -> slot
+  private final NavigableMap<Long, Integer> slots = new TreeMap<>();
+
+  // free slots, popped from the end so the lowest slots are filled first
+  private int[] freeSlots = new int[SEGMENT_SLOTS];
+
+  private int freeCount;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  public MappedProductRepository(File file) throws IOException {
+    File directory = file.getAbsoluteFile().getParentFile();
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Cannot create directory " + directory);
+    }
+    channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      // two repositories on one file would overwrite each other's slots
+      if (channel.tryLock() == null) {
+        throw new IOException(file + " is used by another process");
+      }
+      long segmentCount = Math.max(1, (channel.size() + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+      for (int segment = 0; segment < segmentCount; segment++) {
+        addSegment();
+      }
+      load();
+    } catch (OverlappingFileLockException e) {
+      channel.close();
+      throw new IOException(file + " is already open", e);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public Product findById(long id) {
+    lock.readLock().lock();
+    try {
+      Integer slot = slots.get(id);
+      return slot != null ? read(slot) : null;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public List<Product> findAllById(List<Long> productIds) {
+    lock.readLock().lock();
+    try {
+      List<Product> productList = new ArrayList<>(productIds.size());
+      for (Long id : productIds) {
+        Integer slot = slots.get(id);
+        productList.add(slot != null ? read(slot) : null);
+      }
+      return productList;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @throws IllegalArgumentException if the name is longer than {@link #MAX_NAME_BYTES}
+   */
+  @Override
+  public void save(Product product) {
+    byte[] record = encode(product);
+    lock.writeLock().lock();
+    try {
+      int slot = allocate();
+      write(slot, record);
+      Integer old = slots.put(product.getId(), slot);
+      if (old != null) {
+        free(old);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * @throws IllegalArgumentException if the name is longer than {@link #MAX_NAME_BYTES}
+   */
+  @Override
+  public boolean replace(long expectedVersion, Product product) {
+    byte[] record = encode(product);
+    lock.writeLock().lock();
+    try {
+      Integer old = slots.get(product.getId());
+      if (old == null || version(old) != expectedVersion) {
+        return false;
+      }
+      int slot = allocate();
+      write(slot, record);
+      slots.put(product.getId(), slot);
+      free(old);
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean deleteById(long id) {
+    lock.writeLock().lock();
+    try {
+      Integer slot = slots.remove(id);
+      if (slot == null) {
+        return false;
+      }
+      free(slot);
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean deleteById(long id, long expectedVersion) {
+    lock.writeLock().lock();
+    try {
+      Integer slot = slots.get(id);
+      if (slot == null || version(slot) != expectedVersion) {
+        return false;
+      }
+      slots.remove(id);
+      free(slot);
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public List<Product> findAll() {
+    lock.readLock().lock();
+    try {
+      List<Product> productList = new ArrayList<>(slots.size());
+      for (Integer slot : slots.values()) {
+        productList.add(read(slot));
+      }
+      return productList;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public List<Product> findAfter(long afterId, int limit) {
+    lock.readLock().lock();
+    try {
+      List<Product> productList = new ArrayList<>(Math.min(limit, 1024));
+      for (Integer slot : slots.tailMap(afterId, false).values()) {
+        if (productList.size() == limit) {
+          break;
+        }
+        productList.add(read(slot));
+      }
+      return productList;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public int count() {
+    lock.readLock().lock();
+    try {
+      return slots.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public long maxId() {
+    lock.readLock().lock();
+    try {
+      return slots.isEmpty() ? 0 : slots.lastKey();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public int maxNameBytes() {
+    return MAX_NAME_BYTES;
+  }
+
+  /**
+   * Writes all mapped pages to the disk and closes the file.
+   */
+  @Override
+  public void close() throws IOException {
+    lock.writeLock().lock();
+    try {
+      for (MappedByteBuffer segment : segments) {
+        segment.force();
+      }
+      channel.close();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void load() {
+    for (int slot = segments.size() * SEGMENT_SLOTS - 1; slot >= 0; slot--) {
+      ByteBuffer segment = segment(slot);
+      int offset = offset(slot);
+      if (segment.get(offset) != LIVE || checksum(segment, offset) != segment.getInt(offset + 1)) {
+        pushFree(slot);
+        continue;
+      }
+      long id = segment.getLong(offset + 5);
+      Integer other = slots.get(id);
+      if (other == null) {
+        slots.put(id, slot);
+      } else if (version(slot) > version(other)) {
+        // the process died between writing a new version and freeing the old one
+        slots.put(id, slot);
+        free(other);
+      } else {
+        free(slot);
+      }
+    }
+  }
+
+  private void addSegment() throws IOException {
+    segments.add(channel.map(FileChannel.MapMode.READ_WRITE, segments.size() * SEGMENT_SIZE, SEGMENT_SIZE));
+  }
+
+  private int allocate() {
+    if (freeCount == 0) {
+      try {
+        addSegment();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      int first = (segments.size() - 1) * SEGMENT_SLOTS;
+      for (int slot = first + SEGMENT_SLOTS - 1; slot >= first; slot--) {
+        pushFree(slot);
+      }
+    }
+    return freeSlots[--freeCount];
+  }
+
+  private void free(int slot) {
+    segment(slot).put(offset(slot), FREE);
+    pushFree(slot);
+  }
+
+  private void pushFree(int slot) {
+    if (freeCount == freeSlots.length) {
+      int[] grown = new int[freeSlots.length * 2];
+      System.arraycopy(freeSlots, 0, grown, 0, freeCount);
+      freeSlots = grown;
+    }
+    freeSlots[freeCount++] = slot;
+  }
+
+  private ByteBuffer segment(int slot) {
+    return segments.get(slot / SEGMENT_SLOTS);
+  }
+
+  private static int offset(int slot) {
+    return (slot % SEGMENT_SLOTS) * SLOT_SIZE;
+  }
+
+  private long version(int slot) {
+    return segment(slot).getLong(offset(slot) + 25);
+  }
+
+  /**
+   * Returns the slot content after the state byte, with the checksum filled in.
+   */
+  private static byte[] encode(Product product) {
+    byte[] name = product.getName() != null ? product.getName().getBytes(StandardCharsets.UTF_8) : null;
+    if (name != null && name.length > MAX_NAME_BYTES) {
+      throw new IllegalArgumentException("Name is longer than " + MAX_NAME_BYTES + " bytes");
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE - 1 + (name != null ? name.length : 0));
+    buffer.putInt(0);
+    buffer.putLong(product.getId());
+    buffer.putInt(product.getPrice());
+    buffer.putLong(product.getCreated());
+    buffer.putLong(product.getVersion());
+    buffer.putShort((short) (name != null ? name.length : -1));
+    if (name != null) {
+      buffer.put(name);
+    }
+    CRC32 crc = new CRC32();
+    crc.update(buffer.array(), 4, buffer.capacity() - 4);
+    buffer.putInt(0, (int) crc.getValue());
+    return buffer.array();
+  }
+
+  private void write(int slot, byte[] record) {
+    ByteBuffer segment = segment(slot).duplicate();
+    int offset = offset(slot);
+    segment.position(offset + 1);
+    segment.put(record);
+    segment.put(offset, LIVE);
+  }
+
+  private static int checksum(ByteBuffer segment, int offset) {
+    short nameLength = segment.getShort(offset + HEADER_SIZE - 2);
+    if (nameLength > MAX_NAME_BYTES) {
+      return ~segment.getInt(offset + 1);
+    }
+    ByteBuffer content = segment.duplicate();
+    content.position(offset + 5);
+    content.limit(offset + HEADER_SIZE + Math.max(nameLength, 0));
+    byte[] bytes = new byte[content.remaining()];
+    content.get(bytes);
+    CRC32 crc = new CRC32();
+    crc.update(bytes);
+    return (int) crc.getValue();
+  }
+
+  private Product read(int slot) {
+    ByteBuffer segment = segment(slot);
+    int offset = offset(slot);
+    short nameLength = segment.getShort(offset + HEADER_SIZE - 2);
+    String name = null;
+    if (nameLength >= 0) {
+      byte[] bytes = new byte[nameLength];
+      for (int i = 0; i < nameLength; i++) {
+        bytes[i] = segment.get(offset + HEADER_SIZE + i);
+      }
+      name = new String(bytes, StandardCharsets.UTF_8);
+    }
+    Product product = new Product(segment.getLong(offset + 5), name, segment.getInt(offset + 13), segment.getLong(offset + 17));
+    product.setVersion(segment.getLong(offset + 25));
+    return product;
+  }
+}
@@ -0,0 +1,274 @@
+package demo.msa.product.repository;
+
+import demo.msa.product.model.Product;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps each product as a chain of versions in a cell shared by an id hash map and an id-ordered
+ * skip list. Stored products are never modified; a write pushes a new version onto the chain with
+ * compare-and-set and then stamps it with a commit timestamp, so conditional writes stay lock-free.
+ *
+ * <p>{@link #findAll()} and {@link #findAfter(long, int)} read a snapshot: they take the current
+ * timestamp and, in every chain, pick the newest version stamped at or before it. A reader that
+ * meets a version whose writer has not stamped it yet stamps it itself with a later timestamp, so
+ * neither side ever waits for the other. Versions that no open snapshot can see any more are cut
+ * off the chains by later writes, and deleted cells are unlinked once no snapshot can see them.
+ */
+public class MemoryProductRepository implements ProductRepository {
+
+  // the chain end of a cell that has been unlinked, or is being unlinked, from both maps
+  private static final Version UNLINKED = new Version(null, null, 0);
+
+  // id -> product versions, for O(1) lookup, update and delete
+  private final Map<Long, AtomicReference<Version>> productMap = new ConcurrentHashMap<>();
+
+  // ids are generated in ascending order, so id order is insertion order
+  private final ConcurrentNavigableMap<Long, AtomicReference<Version>> productIndex = new ConcurrentSkipListMap<>();
+
+  private final AtomicLong clock = new AtomicLong();
+
+  // timestamp -> number of snapshots registered at it
+  private final ConcurrentNavigableMap<Long, Integer> snapshots = new ConcurrentSkipListMap<>();
+
+  private final AtomicInteger size = new AtomicInteger();
+
+  @Override
+  public Product findById(long id) {
+    AtomicReference<Version> cell = productMap.get(id);
+    if (cell == null) {
+      return null;
+    }
+    // stamp the version, so no snapshot taken after this read misses it
+    Version head = cell.get();
+    commit(head);
+    return head.product;
+  }
+
+  @Override
+  public void save(Product product) {
+    long id = product.getId();
+    while (true) {
+      AtomicReference<Version> cell = productMap.get(id);
+      if (cell == null) {
+        Version version = new Version(product, null, Version.PENDING);
+        cell = new AtomicReference<>(version);
+        if (productMap.putIfAbsent(id, cell) == null) {
+          productIndex.put(id, cell);
+          commit(version);
+          size.incrementAndGet();
+          return;
+        }
+        continue;
+      }
+      Version head = cell.get();
+      if (head == UNLINKED) {
+        unlink(id, cell);
+        continue;
+      }
+      if (push(cell, head, product)) {
+        if (head.product == null) {
+          size.incrementAndGet();
+        }
+        return;
+      }
+    }
+  }
+
+  @Override
+  public boolean replace(long expectedVersion, Product product) {
+    AtomicReference<Version> cell = productMap.get(product.getId());
+    if (cell == null) {
+      return false;
+    }
+    Version head = cell.get();
+    return head.product != null && head.product.getVersion() == expectedVersion && push(cell, head, product);
+  }
+
+  @Override
+  public boolean deleteById(long id) {
+    AtomicReference<Version> cell = productMap.get(id);
+    if (cell == null) {
+      return false;
+    }
+    while (true) {
+      Version head = cell.get();
+      if (head.product == null) {
+        return false;
+      }
+      if (push(cell, head, null)) {
+        size.decrementAndGet();
+        return true;
+      }
+    }
+  }
+
+  @Override
+  public boolean deleteById(long id, long expectedVersion) {
+    AtomicReference<Version> cell = productMap.get(id);
+    if (cell == null) {
+      return false;
+    }
+    Version head = cell.get();
+    if (head.product != null && head.product.getVersion() == expectedVersion && push(cell, head, null)) {
+      size.decrementAndGet();
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public List<Product> findAll() {
+    return read(productIndex.values(), Integer.MAX_VALUE);
+  }
+
+  @Override
+  public List<Product> findAfter(long afterId, int limit) {
+    return read(productIndex.tailMap(afterId, false).values(), limit);
+  }
+
+  @Override
+  public int count() {
+    return size.get();
+  }
+
+  @Override
+  public long maxId() {
+    for (Map.Entry<Long, AtomicReference<Version>> entry : productIndex.descendingMap().entrySet()) {
+      if (entry.getValue().get().product != null) {
+        return entry.getKey();
+      }
+    }
+    return 0;
+  }
+
+  private List<Product> read(Collection<AtomicReference<Version>> cells, int limit) {
+    // register before taking the timestamp, so a concurrent prune keeps what this snapshot sees
+    long registered = clock.get();
+    snapshots.merge(registered, 1, Integer::sum);
+    try {
+      long timestamp = clock.get();
+      long horizon = horizon();
+      List<Product> productList = new ArrayList<>(Math.min(Math.min(limit, size.get()), 1024) + 16);
+      for (AtomicReference<Version> cell : cells) {
+        if (productList.size() == limit) {
+          break;
+        }
+        Version head = cell.get();
+        Product product = visible(head, timestamp);
+        if (product != null) {
+          productList.add(product);
+        }
+        // cells that are no longer written to are pruned here instead
+        if (head.prev != null || head.product == null) {
+          prune(cell, horizon);
+        }
+      }
+      return productList;
+    } finally {
+      snapshots.computeIfPresent(registered, (key, count) -> count == 1 ? null : count - 1);
+    }
+  }
+
+  private Product visible(Version version, long timestamp) {
+    for (; version != null && version != UNLINKED; version = version.prev) {
+      if (commit(version) <= timestamp) {
+        return version.product;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Pushes a new version, null for a delete, on top of {@code head}, then stamps it and prunes the
+   * chain.
+   */
+  private boolean push(AtomicReference<Version> cell, Version head, Product product) {
+    // stamp the head first, so timestamps decrease along every chain
+    commit(head);
+    Version version = new Version(product, head, Version.PENDING);
+    if (!cell.compareAndSet(head, version)) {
+      return false;
+    }
+    commit(version);
+    prune(cell, horizon());
+    return true;
+  }
+
+  /**
+   * Returns the commit timestamp of the version, stamping it with a new one if it has none yet.
+   */
+  private long commit(Version version) {
+    long timestamp = version.timestamp;
+    if (timestamp == Version.PENDING) {
+      Version.TIMESTAMP.compareAndSet(version, Version.PENDING, clock.incrementAndGet());
+      timestamp = version.timestamp;
+    }
+    return timestamp;
+  }
+
+  /**
+   * Returns a timestamp no later than any open or future snapshot.
+   */
+  private long horizon() {
+    long horizon = clock.get();
+    Map.Entry<Long, Integer> oldest = snapshots.firstEntry();
+    return oldest != null ? Math.min(horizon, oldest.getKey()) : horizon;
+  }
+
+  /**
+   * Drops the versions that are older than the newest one visible at {@code horizon}, and unlinks
+   * the cell if that version is a delete.
+   */
+  private void prune(AtomicReference<Version> cell, long horizon) {
+    Version head = cell.get();
+    for (Version version = head; version != null && version != UNLINKED; version = version.prev) {
+      long timestamp = version.timestamp;
+      if (timestamp != Version.PENDING && timestamp <= horizon) {
+        version.prev = null;
+        if (version == head && version.product == null && cell.compareAndSet(head, UNLINKED)) {
+          unlink(head.id, cell);
+        }
+        return;
+      }
+    }
+  }
+
+  private void unlink(long id, AtomicReference<Version> cell) {
+    productMap.remove(id, cell);
+    productIndex.remove(id, cell);
+  }
+
+  private static final class Version {
+
+    static final long PENDING = Long.MAX_VALUE;
+
+    static final AtomicLongFieldUpdater<Version> TIMESTAMP = AtomicLongFieldUpdater.newUpdater(Version.class, "timestamp");
+
+    // null for a delete
+    final Product product;
+
+    final long id;
+
+    volatile long timestamp;
+
+    volatile Version prev;
+
+    Version(Product product, Version prev, long timestamp) {
+      this.product = product;
+      this.id = product != null ? product.getId() : prev != null ? prev.id : 0;
+      this.prev = prev;
+      this.timestamp = timestamp;
+    }
+  }
+}
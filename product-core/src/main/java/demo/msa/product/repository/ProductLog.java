@@ -0,0 +1,119 @@
+package demo.msa.product.repository;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only log segment with group commit: {@link #append} only buffers the record, and
+ * {@link #sync} makes every record appended so far durable with a single fsync, so writers that
+ * arrive while another writer is syncing share the next fsync instead of each paying for one.
+ */
+class ProductLog implements Closeable {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final File directory;
+
+  private final Object syncLock = new Object();
+
+  // guarded by this
+  private FileChannel channel;
+  private long segment;
+  private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+  private long appended;
+
+  private volatile long durable;
+
+  ProductLog(File directory, long segment) throws IOException {
+    this.directory = directory;
+    this.segment = segment;
+    this.channel = open(segment);
+  }
+
+  static String segmentName(long segment) {
+    return String.format("wal-%016d.log", segment);
+  }
+
+  /**
+   * Buffers the record and returns its sequence number, to be passed to {@link #sync}.
+   */
+  synchronized long append(byte[] payload) throws IOException {
+    int frameSize = ProductRecords.frameSize(payload);
+    if (buffer.remaining() < frameSize) {
+      drain();
+      if (buffer.capacity() < frameSize) {
+        buffer = ByteBuffer.allocate(frameSize);
+      }
+    }
+    ProductRecords.writeFrame(buffer, payload);
+    return ++appended;
+  }
+
+  void sync(long sequence) throws IOException {
+    if (durable >= sequence) {
+      return;
+    }
+    synchronized (syncLock) {
+      if (durable >= sequence) {
+        return;
+      }
+      FileChannel target;
+      long sequenceToSync;
+      synchronized (this) {
+        drain();
+        target = channel;
+        sequenceToSync = appended;
+      }
+      target.force(false);
+      durable = sequenceToSync;
+    }
+  }
+
+  /**
+   * Makes the current segment durable and starts a new one. Returns the new segment number.
+   */
+  long rotate() throws IOException {
+    synchronized (syncLock) {
+      synchronized (this) {
+        drain();
+        channel.force(false);
+        channel.close();
+        durable = appended;
+        segment++;
+        channel = open(segment);
+        return segment;
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    synchronized (syncLock) {
+      synchronized (this) {
+        if (channel.isOpen()) {
+          drain();
+          channel.force(false);
+          channel.close();
+          durable = appended;
+        }
+      }
+    }
+  }
+
+  private FileChannel open(long segment) throws IOException {
+    File file = new File(directory, segmentName(segment));
+    return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+  }
+
+  private void drain() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+}
@@ -0,0 +1,127 @@
+package demo.msa.product.repository;
+
+import demo.msa.product.model.Product;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Binary encoding shared by the write-ahead log and snapshots. Every record is framed as
+ * {@code length:int crc:int payload}, so a torn or corrupt tail is detected on replay.
+ */
+final class ProductRecords {
+
+  static final byte SAVE = 1;
+
+  static final byte DELETE = 2;
+
+  static final int FRAME_HEADER = 8;
+
+  // files are mapped in windows of at most this size while replaying
+  private static final long MAX_WINDOW = 1 << 30;
+
+  private ProductRecords() {
+  }
+
+  static byte[] save(Product product) {
+    byte[] name = product.getName() != null ? product.getName().getBytes(StandardCharsets.UTF_8) : null;
+    ByteBuffer buffer = ByteBuffer.allocate(33 + (name != null ? name.length : 0));
+    buffer.put(SAVE)
+        .putLong(product.getId())
+        .putInt(product.getPrice())
+        .putLong(product.getCreated())
+        .putLong(product.getVersion())
+        .putInt(name != null ? name.length : -1);
+    if (name != null) {
+      buffer.put(name);
+    }
+    return buffer.array();
+  }
+
+  static byte[] delete(long id) {
+    return ByteBuffer.allocate(9).put(DELETE).putLong(id).array();
+  }
+
+  static int frameSize(byte[] payload) {
+    return FRAME_HEADER + payload.length;
+  }
+
+  static void writeFrame(ByteBuffer target, byte[] payload) {
+    CRC32 crc = new CRC32();
+    crc.update(payload, 0, payload.length);
+    target.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+  }
+
+  /**
+   * Reads the frame at the buffer position. Returns null and leaves the position unchanged if the
+   * frame is incomplete or fails its checksum.
+   */
+  static byte[] readFrame(ByteBuffer source) {
+    int start = source.position();
+    if (source.remaining() < FRAME_HEADER) {
+      return null;
+    }
+    int length = source.getInt();
+    int checksum = source.getInt();
+    if (length < 0 || length > source.remaining()) {
+      source.position(start);
+      return null;
+    }
+    byte[] payload = new byte[length];
+    source.get(payload);
+    CRC32 crc = new CRC32();
+    crc.update(payload, 0, length);
+    if ((int) crc.getValue() != checksum) {
+      source.position(start);
+      return null;
+    }
+    return payload;
+  }
+
+  static void apply(byte[] payload, ProductRepository repository) {
+    ByteBuffer buffer = ByteBuffer.wrap(payload);
+    byte type = buffer.get();
+    long id = buffer.getLong();
+    if (type == SAVE) {
+      int price = buffer.getInt();
+      long created = buffer.getLong();
+      long version = buffer.getLong();
+      int nameLength = buffer.getInt();
+      String name = null;
+      if (nameLength >= 0) {
+        name = new String(payload, buffer.position(), nameLength, StandardCharsets.UTF_8);
+      }
+      Product product = new Product(id, name, price, created);
+      product.setVersion(version);
+      repository.save(product);
+    } else if (type == DELETE) {
+      repository.deleteById(id);
+    } else {
+      throw new IllegalStateException("Unknown product record type: " + type);
+    }
+  }
+
+  /**
+   * Memory-maps the file from {@code position} and applies every valid frame to the repository.
+   * Returns the offset just past the last valid frame.
+   */
+  static long replay(FileChannel channel, long position, ProductRepository repository) throws IOException {
+    long size = channel.size();
+    while (position < size) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(size - position, MAX_WINDOW));
+      byte[] payload;
+      while ((payload = readFrame(buffer)) != null) {
+        apply(payload, repository);
+      }
+      if (buffer.position() == 0) {
+        break;
+      }
+      position += buffer.position();
+    }
+    return position;
+  }
+}
@@ -0,0 +1,74 @@
+package demo.msa.product.repository;
+
+import demo.msa.product.model.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public interface ProductRepository {
+
+  Product findById(long id);
+
+  /**
+   * Returns the products with the given ids in the same order, with null for ids that are not
+   * found.
+   */
+  default List<Product> findAllById(List<Long> ids) {
+    List<Product> productList = new ArrayList<>(ids.size());
+    for (Long id : ids) {
+      productList.add(findById(id));
+    }
+    return productList;
+  }
+
+  /**
+   * Inserts the product, or replaces the stored product with the same id. The repository keeps
+   * the given instance or a copy; callers must not modify it afterwards.
+   */
+  void save(Product product);
+
+  /**
+   * Replaces the stored product with the same id, but only if the stored product still has
+   * {@code expectedVersion}. Returns false if it was changed or deleted in the meantime.
+   */
+  boolean replace(long expectedVersion, Product product);
+
+  boolean deleteById(long id);
+
+  /**
+   * Deletes the product, but only if it still has {@code expectedVersion}.
+   */
+  boolean deleteById(long id, long expectedVersion);
+
+  /**
+   * Returns all products in ascending id order, as a new list holding the catalog at a single
+   * point in time: writes that run during the call show up completely or not at all.
+   */
+  List<Product> findAll();
+
+  /**
+   * Returns at most {@code limit} products with an id greater than {@code afterId}, in ascending id
+   * order, read at a single point in time like {@link #findAll()}.
+   */
+  List<Product> findAfter(long afterId, int limit);
+
+  int count();
+
+  long maxId();
+
+  /**
+   * Returns the longest product name this repository can store, in UTF-8 bytes.
+   */
+  default int maxNameBytes() {
+    return Integer.MAX_VALUE;
+  }
+
+  /**
+   * Runs a group of writes made through this repository on the calling thread. Engines may use it
+   * to amortize per-write costs; a journaled repository makes the whole group durable with a single
+   * log sync before returning.
+   */
+  default void batch(Runnable writes) {
+    writes.run();
+  }
+}
@@ -0,0 +1,59 @@
+package demo.msa.product.request;
+
+import java.util.Map;
+
+public class ProductBulkOperation {
+
+  // create | update | delete
+  private String op;
+
+  // update and delete
+  private long id;
+
+  // create
+  private String name;
+  private int price;
+
+  // update
+  private Map<String, Object> fields;
+
+  public String getOp() {
+    return op;
+  }
+
+  public void setOp(String op) {
+    this.op = op;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public void setId(long id) {
+    this.id = id;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public int getPrice() {
+    return price;
+  }
+
+  public void setPrice(int price) {
+    this.price = price;
+  }
+
+  public Map<String, Object> getFields() {
+    return fields;
+  }
+
+  public void setFields(Map<String, Object> fields) {
+    this.fields = fields;
+  }
+}
@@ -0,0 +1,16 @@
+package demo.msa.product.request;
+
+import java.util.List;
+
+public class ProductIdsRequest {
+
+  private List<Long> ids;
+
+  public List<Long> getIds() {
+    return ids;
+  }
+
+  public void setIds(List<Long> ids) {
+    this.ids = ids;
+  }
+}
@@ -0,0 +1,29 @@
+package demo.msa.product.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+public class ProductBulkResponse {
+
+  @JsonProperty("items")
+  private List<ProductBulkResult> resultList;
+
+  private int errors;
+
+  public List<ProductBulkResult> getResultList() {
+    return resultList;
+  }
+
+  public void setResultList(List<ProductBulkResult> resultList) {
+    this.resultList = resultList;
+  }
+
+  public int getErrors() {
+    return errors;
+  }
+
+  public void setErrors(int errors) {
+    this.errors = errors;
+  }
+}
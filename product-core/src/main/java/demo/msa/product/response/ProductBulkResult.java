@@ -0,0 +1,58 @@
+package demo.msa.product.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import demo.msa.product.model.Product;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductBulkResult {
+
+  private String op;
+
+  private int status;
+
+  private Product product;
+
+  private String error;
+
+  public ProductBulkResult() {
+  }
+
+  public ProductBulkResult(String op, int status, Product product, String error) {
+    this.op = op;
+    this.status = status;
+    this.product = product;
+    this.error = error;
+  }
+
+  public String getOp() {
+    return op;
+  }
+
+  public void setOp(String op) {
+    this.op = op;
+  }
+
+  public int getStatus() {
+    return status;
+  }
+
+  public void setStatus(int status) {
+    this.status = status;
+  }
+
+  public Product getProduct() {
+    return product;
+  }
+
+  public void setProduct(Product product) {
+    this.product = product;
+  }
+
+  public String getError() {
+    return error;
+  }
+
+  public void setError(String error) {
+    this.error = error;
+  }
+}
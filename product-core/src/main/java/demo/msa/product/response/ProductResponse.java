@@ -1,5 +1,6 @@
 package demo.msa.product.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import demo.msa.product.model.Product;
 
@@ -12,6 +13,12 @@ public class ProductResponse {
 
   private int total;
 
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private String next;
+
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private List<Long> missing;
+
   public List<Product> getProductList() {
     return productList;
   }
@@ -27,4 +34,20 @@ public class ProductResponse {
   public void setTotal(int total) {
     this.total = total;
   }
+
+  public String getNext() {
+    return next;
+  }
+
+  public void setNext(String next) {
+    this.next = next;
+  }
+
+  public List<Long> getMissing() {
+    return missing;
+  }
+
+  public void setMissing(List<Long> missing) {
+    this.missing = missing;
+  }
 }
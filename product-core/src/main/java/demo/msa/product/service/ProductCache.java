@@ -0,0 +1,149 @@
+package demo.msa.product.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import demo.msa.product.model.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+/**
+ * Read-through cache of products by id, bounded both by entry count and by estimated heap
+ * weight. Eviction and admission follow Caffeine's W-TinyLFU policy: a small LRU window admits
+ * new products, and a product only enters the main segment if its estimated access frequency beats
+ * the segment's eviction candidate, so one-off reads of cold products cannot flush hot ones.
+ *
+ * <p>Caffeine takes a single weight bound, so every entry weighs at least {@code maximumWeight /
+ * maximumSize}; the cache then never holds more than {@code maximumSize} entries either.
+ *
+ * <p>Misses are loaded outside the cache's locks, so a load blocked on storage neither holds up
+ * other ids nor pins a virtual thread to its carrier. A load that overlaps {@link
+ * #invalidate(long)} of its id is returned but not cached, so invalidating after a write never
+ * leaves the old product cached. Concurrent misses of one id each load it.
+ */
+public final class ProductCache {
+
+  // object headers, fields and map entry of a cached product, roughly, without the name's chars
+  private static final int BASE_WEIGHT = 160;
+
+  private static final int INVALIDATION_STRIPES = 1024;
+
+  private final Cache<Long, Product> cache;
+
+  // invalidations per stripe of ids, counted before the entry is removed
+  private final AtomicLongArray invalidations = new AtomicLongArray(INVALIDATION_STRIPES);
+
+  /**
+   * @param maximumSize   maximum number of products, or 0 to disable caching
+   * @param maximumWeight maximum estimated heap bytes of the cached products
+   */
+  public ProductCache(long maximumSize, long maximumWeight) {
+    if (maximumSize <= 0) {
+      cache = null;
+      return;
+    }
+    int minimumWeight = (int) Math.min(Integer.MAX_VALUE, (maximumWeight + maximumSize - 1) / maximumSize);
+    cache = Caffeine.newBuilder()
+        .maximumWeight(maximumWeight)
+        .weigher((Long id, Product product) -> Math.max(minimumWeight, weigh(product)))
+        .recordStats()
+        .build();
+  }
+
+  /**
+   * Returns the cached product without loading it, or null if it is not cached. Counts towards the
+   * product's frequency but not towards the hit and miss statistics.
+   */
+  public Product getIfPresent(long id) {
+    return cache != null ? cache.asMap().get(id) : null;
+  }
+
+  /**
+   * Returns the cached product, or loads it and caches it unless the loader returns null.
+   */
+  public Product get(long id, LongFunction<Product> loader) {
+    if (cache == null) {
+      return loader.apply(id);
+    }
+    Product product = cache.getIfPresent(id);
+    if (product != null) {
+      return product;
+    }
+    int stripe = stripe(id);
+    long invalidation = invalidations.get(stripe);
+    Product loaded = loader.apply(id);
+    if (loaded == null) {
+      return null;
+    }
+    // invalidate removes under the same lock, so either this sees its count or it removes this entry
+    Product cached = cache.asMap().compute(id, (key, current) ->
+        current != null ? current : invalidations.get(stripe) == invalidation ? loaded : null);
+    return cached != null ? cached : loaded;
+  }
+
+  /**
+   * Returns the products with the given ids in the same order, with null for ids that are not
+   * found. Ids that miss are loaded together but not cached, since a bulk load is not atomic per
+   * id; single reads cache them.
+   */
+  public List<Product> getAll(List<Long> ids, Function<List<Long>, List<Product>> loader) {
+    if (cache == null) {
+      return loader.apply(ids);
+    }
+    Map<Long, Product> present = cache.getAllPresent(ids);
+    List<Long> missing = new ArrayList<>();
+    for (Long id : ids) {
+      if (!present.containsKey(id)) {
+        missing.add(id);
+      }
+    }
+    List<Product> loaded = missing.isEmpty() ? null : loader.apply(missing);
+    List<Product> productList = new ArrayList<>(ids.size());
+    int next = 0;
+    for (Long id : ids) {
+      Product product = present.get(id);
+      productList.add(product != null ? product : loaded.get(next++));
+    }
+    return productList;
+  }
+
+  public void invalidate(long id) {
+    if (cache != null) {
+      invalidations.incrementAndGet(stripe(id));
+      cache.invalidate(id);
+    }
+  }
+
+  /**
+   * Returns the statistics since the cache was created, after running any pending evictions.
+   */
+  public ProductCacheStats getStats() {
+    ProductCacheStats stats = new ProductCacheStats();
+    if (cache == null) {
+      return stats;
+    }
+    cache.cleanUp();
+    CacheStats cacheStats = cache.stats();
+    stats.setEnabled(true);
+    stats.setSize(cache.estimatedSize());
+    stats.setWeight(cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L));
+    stats.setHits(cacheStats.hitCount());
+    stats.setMisses(cacheStats.missCount());
+    stats.setHitRate(cacheStats.hitRate());
+    stats.setEvictions(cacheStats.evictionCount());
+    return stats;
+  }
+
+  private static int stripe(long id) {
+    return Long.hashCode(id) & (INVALIDATION_STRIPES - 1);
+  }
+
+  private static int weigh(Product product) {
+    return BASE_WEIGHT + (product.getName() != null ? 2 * product.getName().length() : 0);
+  }
+}
@@ -0,0 +1,56 @@
+package demo.msa.product.service;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Opaque keyset pagination cursor: the id, and for price-ordered pages also the price, of the last
+ * product on the previous page.
+ */
+public final class ProductCursor {
+
+  private final long id;
+
+  private final Integer price;
+
+  private ProductCursor(long id, Integer price) {
+    this.id = id;
+    this.price = price;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  /**
+   * Returns null for cursors of id-ordered pages.
+   */
+  public Integer getPrice() {
+    return price;
+  }
+
+  public static String encode(long lastId) {
+    byte[] bytes = ByteBuffer.allocate(8).putLong(lastId).array();
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+  }
+
+  public static String encode(int lastPrice, long lastId) {
+    byte[] bytes = ByteBuffer.allocate(12).putInt(lastPrice).putLong(lastId).array();
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+  }
+
+  /**
+   * @throws IllegalArgumentException if the cursor was not produced by one of the encode methods
+   */
+  public static ProductCursor decode(String cursor) {
+    ByteBuffer bytes = ByteBuffer.wrap(Base64.getUrlDecoder().decode(cursor));
+    if (bytes.remaining() == 8) {
+      return new ProductCursor(bytes.getLong(), null);
+    }
+    if (bytes.remaining() == 12) {
+      int price = bytes.getInt();
+      return new ProductCursor(bytes.getLong(), price);
+    }
+    throw new IllegalArgumentException("Invalid cursor: " + cursor);
+  }
+}
@@ -0,0 +1,176 @@
+package demo.msa.product.service;
+
+import demo.msa.product.model.Product;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongFunction;
+import java.util.regex.Pattern;
+
+/**
+ * Full-text index over product names: an inverted index from lower-cased name tokens to product
+ * ids for search, and a sorted dictionary of lower-cased names for prefix suggestions. Like
+ * {@link ProductPriceIndex}, every id is stored with the version of the write that added it, and
+ * lookups check their hits against the current products and prune stale ones.
+ */
+class ProductNameIndex {
+
+  private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+  // token -> id -> version, for the products whose name contains the token
+  private final Map<String, ConcurrentMap<Long, Long>> postings = new ConcurrentHashMap<>();
+
+  // lower-cased name -> id -> version, for the products with that name
+  private final Map<String, ConcurrentMap<Long, Long>> nameIds = new ConcurrentHashMap<>();
+
+  // the keys of nameIds, kept sorted for prefix range scans
+  private final ConcurrentNavigableMap<String, Boolean> names = new ConcurrentSkipListMap<>();
+
+  void add(long id, long version, String name) {
+    if (name == null) {
+      return;
+    }
+    for (String token : tokenize(name)) {
+      postings.compute(token, (key, ids) -> add(ids, id, version));
+    }
+    nameIds.compute(name.toLowerCase(Locale.ROOT), (key, ids) -> {
+      if (ids == null) {
+        names.put(key, Boolean.TRUE);
+      }
+      return add(ids, id, version);
+    });
+  }
+
+  /**
+   * Removes the id from the name's entries that were added by a write with a version up to
+   * {@code version}.
+   */
+  void remove(long id, long version, String name) {
+    if (name == null) {
+      return;
+    }
+    for (String token : tokenize(name)) {
+      removeToken(token, id, version);
+    }
+    removeName(name.toLowerCase(Locale.ROOT), id, version);
+  }
+
+  /**
+   * Returns the products matching at least one query token, best match first. A product scores
+   * the sum of the inverse document frequencies of the query tokens in its name, so rare tokens
+   * weigh more than common ones; ties are broken by id.
+   */
+  List<Product> search(String query, int limit, int productCount, LongFunction<Product> products) {
+    Set<String> tokens = tokenize(query);
+    Map<Long, Double> scores = new HashMap<>();
+    for (String token : tokens) {
+      Map<Long, Long> ids = postings.get(token);
+      if (ids != null && !ids.isEmpty()) {
+        double idf = Math.log(1 + (double) Math.max(productCount, ids.size()) / ids.size());
+        for (Long id : ids.keySet()) {
+          scores.merge(id, idf, Double::sum);
+        }
+      }
+    }
+    PriorityQueue<Map.Entry<Long, Double>> ranked = new PriorityQueue<>(Math.max(scores.size(), 1),
+        Comparator.<Map.Entry<Long, Double>>comparingDouble(Map.Entry::getValue).reversed()
+            .thenComparing(Map.Entry::getKey));
+    ranked.addAll(scores.entrySet());
+    List<Product> productList = new ArrayList<>(Math.min(limit, ranked.size()));
+    while (productList.size() < limit && !ranked.isEmpty()) {
+      long id = ranked.poll().getKey();
+      Product product = products.apply(id);
+      Set<String> current = product != null && product.getName() != null ? tokenize(product.getName()) : null;
+      boolean matches = false;
+      for (String token : tokens) {
+        if (current != null && current.contains(token)) {
+          matches = true;
+        } else {
+          removeToken(token, id, product != null ? product.getVersion() : Long.MAX_VALUE);
+        }
+      }
+      if (matches) {
+        productList.add(product);
+      }
+    }
+    return productList;
+  }
+
+  /**
+   * Returns at most {@code limit} distinct names starting with the prefix, ignoring case, in
+   * alphabetical order.
+   */
+  List<String> suggest(String prefix, int limit, LongFunction<Product> products) {
+    String from = prefix.toLowerCase(Locale.ROOT);
+    List<String> suggestions = new ArrayList<>(Math.min(limit, 64));
+    for (String key : names.tailMap(from).keySet()) {
+      if (suggestions.size() == limit || !key.startsWith(from)) {
+        break;
+      }
+      Map<Long, Long> ids = nameIds.get(key);
+      if (ids == null) {
+        continue;
+      }
+      for (Long id : ids.keySet()) {
+        Product product = products.apply(id);
+        if (product != null && product.getName() != null && product.getName().toLowerCase(Locale.ROOT).equals(key)) {
+          suggestions.add(product.getName());
+          break;
+        }
+        removeName(key, id, product != null ? product.getVersion() : Long.MAX_VALUE);
+      }
+    }
+    return suggestions;
+  }
+
+  private void removeToken(String token, long id, long version) {
+    Map<Long, Long> ids = postings.get(token);
+    if (ids != null && ids.containsKey(id)) {
+      postings.computeIfPresent(token, (key, current) -> remove(current, id, version));
+    }
+  }
+
+  private void removeName(String key, long id, long version) {
+    nameIds.computeIfPresent(key, (k, ids) -> {
+      ConcurrentMap<Long, Long> result = remove(ids, id, version);
+      if (result == null) {
+        names.remove(key);
+      }
+      return result;
+    });
+  }
+
+  private static ConcurrentMap<Long, Long> add(ConcurrentMap<Long, Long> ids, long id, long version) {
+    if (ids == null) {
+      ids = new ConcurrentHashMap<>();
+    }
+    ids.merge(id, version, Math::max);
+    return ids;
+  }
+
+  private static ConcurrentMap<Long, Long> remove(ConcurrentMap<Long, Long> ids, long id, long version) {
+    ids.computeIfPresent(id, (key, current) -> current <= version ? null : current);
+    return ids.isEmpty() ? null : ids;
+  }
+
+  private static Set<String> tokenize(String text) {
+    Set<String> tokens = new LinkedHashSet<>();
+    for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+      if (!token.isEmpty()) {
+        tokens.add(token);
+      }
+    }
+    return tokens;
+  }
+}
@@ -0,0 +1,103 @@
+package demo.msa.product.service;
+
+import demo.msa.product.model.Product;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Applies a field map from a PUT request to a {@link Product} through a fixed table of setters,
+ * one per patchable field, instead of looking fields up reflectively per request. Fields outside
+ * the table, such as {@code id} and {@code created}, are rejected.
+ */
+final class ProductPatcher {
+
+  private static final FieldSetter<?>[] fields = {
+      new FieldSetter<>("name", ProductPatcher::toName, Product::setName),
+      new FieldSetter<>("price", ProductPatcher::toPrice, Product::setPrice)
+  };
+
+  private static final Map<String, Integer> fieldIndexes = new HashMap<>();
+
+  static {
+    for (int i = 0; i < fields.length; i++) {
+      fieldIndexes.put(fields[i].name, i);
+    }
+  }
+
+  private ProductPatcher() {
+  }
+
+  /**
+   * Converts every non-null value first and only then sets them, so an invalid map leaves the
+   * product untouched.
+   *
+   * @throws IllegalArgumentException if a field is not patchable or a value cannot be converted
+   */
+  static void patch(Product product, Map<String, Object> fieldMap) {
+    Object[] values = new Object[fields.length];
+    for (Map.Entry<String, Object> fieldEntry : fieldMap.entrySet()) {
+      Object fieldValue = fieldEntry.getValue();
+      if (fieldValue != null) {
+        Integer fieldIndex = fieldIndexes.get(fieldEntry.getKey());
+        if (fieldIndex == null) {
+          throw new IllegalArgumentException("Field is not patchable: " + fieldEntry.getKey());
+        }
+        values[fieldIndex] = fields[fieldIndex].converter.apply(fieldValue);
+      }
+    }
+    for (int i = 0; i < fields.length; i++) {
+      if (values[i] != null) {
+        fields[i].set(product, values[i]);
+      }
+    }
+  }
+
+  private static String toName(Object value) {
+    if (value instanceof String) {
+      return (String) value;
+    }
+    throw new IllegalArgumentException("name must be a string: " + value);
+  }
+
+  private static Integer toPrice(Object value) {
+    if (value instanceof Integer) {
+      return (Integer) value;
+    }
+    if (value instanceof Number) {
+      Number number = (Number) value;
+      if (number.doubleValue() == number.intValue()) {
+        return number.intValue();
+      }
+    } else if (value instanceof String) {
+      try {
+        return Integer.valueOf((String) value);
+      } catch (NumberFormatException e) {
+        // reported below
+      }
+    }
+    throw new IllegalArgumentException("price must be an integer: " + value);
+  }
+
+  private static final class FieldSetter<T> {
+
+    private final String name;
+
+    private final Function<Object, T> converter;
+
+    private final BiConsumer<Product, T> setter;
+
+    FieldSetter(String name, Function<Object, T> converter, BiConsumer<Product, T> setter) {
+      this.name = name;
+      this.converter = converter;
+      this.setter = setter;
+    }
+
+    @SuppressWarnings("unchecked")
+    void set(Product product, Object value) {
+      setter.accept(product, (T) value);
+    }
+  }
+}
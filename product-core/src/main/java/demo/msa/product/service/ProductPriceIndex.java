@@ -0,0 +1,76 @@
+package demo.msa.product.service;
+
+import java.util.Collections;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Secondary index of product ids ordered by price, then id. Writers update it after the
+ * repository without a lock, so each entry carries the version of the write that added it: a
+ * removal only drops entries that are not newer than the write being undone, and readers check
+ * entries against the repository and prune the ones that have gone stale.
+ */
+class ProductPriceIndex {
+
+  private final ConcurrentNavigableMap<Entry, Long> entries = new ConcurrentSkipListMap<>();
+
+  void add(int price, long id, long version) {
+    entries.merge(new Entry(price, id), version, Math::max);
+  }
+
+  /**
+   * Removes the entry if it was added by a write with a version up to {@code version}.
+   */
+  void remove(int price, long id, long version) {
+    entries.computeIfPresent(new Entry(price, id), (entry, current) -> current <= version ? null : current);
+  }
+
+  /**
+   * Returns a live view of the entries with {@code minPrice <= price <= maxPrice} that come after
+   * the given cursor entry, or from the start of the range if {@code after} is null.
+   */
+  NavigableMap<Entry, Long> range(int minPrice, int maxPrice, Entry after) {
+    Entry from = new Entry(minPrice, Long.MIN_VALUE);
+    Entry to = new Entry(maxPrice, Long.MAX_VALUE);
+    if (after != null && after.compareTo(from) >= 0) {
+      from = after;
+      if (from.compareTo(to) >= 0) {
+        return Collections.emptyNavigableMap();
+      }
+      return entries.subMap(from, false, to, true);
+    }
+    if (from.compareTo(to) > 0) {
+      return Collections.emptyNavigableMap();
+    }
+    return entries.subMap(from, true, to, true);
+  }
+
+  static final class Entry implements Comparable<Entry> {
+
+    final int price;
+
+    final long id;
+
+    Entry(int price, long id) {
+      this.price = price;
+      this.id = id;
+    }
+
+    @Override
+    public int compareTo(Entry other) {
+      int result = Integer.compare(price, other.price);
+      return result != 0 ? result : Long.compare(id, other.id);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof Entry && compareTo((Entry) other) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * price + Long.hashCode(id);
+    }
+  }
+}
@@ -0,0 +1,318 @@
+package demo.msa.product.service;
+
+import demo.msa.product.model.Product;
+import demo.msa.product.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+@Service
+public class ProductService {
+
+  /**
+   * The expected version every existing product is at, which makes a conditional write only require
+   * the product to exist.
+   */
+  public static final long ANY_VERSION = Long.MIN_VALUE;
+
+  @Autowired
+  private ProductRepository productRepository;
+
+  @Autowired
+  private ProductCache productCache;
+
+  private final AtomicLong idGenerator = new AtomicLong(1);
+
+  // bumped by every write; a product's version is the catalog version of its last write
+  private final AtomicLong catalogVersion = new AtomicLong();
+
+  // bumped once a write is in the repository, unlike the catalog version, which a create or update
+  // takes before storing the product
+  private final AtomicLong appliedWrites = new AtomicLong();
+
+  // the ids written by the batch the calling thread runs, if any
+  private final ThreadLocal<Set<Long>> batchWrites = new ThreadLocal<>();
+
+  // the catalog version restarts from the highest persisted product version, which is lower than
+  // before the restart if the last writes were deletes, so tags also carry this service's start time
+  private final long epoch = System.currentTimeMillis();
+
+  private final ProductPriceIndex priceIndex = new ProductPriceIndex();
+
+  private final ProductNameIndex nameIndex = new ProductNameIndex();
+
+  private final LongFunction<Product> productLookup = id -> productRepository.findById(id);
+
+  @PostConstruct
+  public void init() {
+    if (productRepository.count() == 0) {
+      createProduct("MacBook", 10000);
+      createProduct("MacBook Air", 7000);
+      createProduct("MacBook Pro", 12000);
+    } else {
+      idGenerator.set(productRepository.maxId() + 1);
+      long afterId = 0;
+      List<Product> productList;
+      while (!(productList = productRepository.findAfter(afterId, 10000)).isEmpty()) {
+        for (Product product : productList) {
+          catalogVersion.set(Math.max(catalogVersion.get(), product.getVersion()));
+          priceIndex.add(product.getPrice(), product.getId(), product.getVersion());
+          nameIndex.add(product.getId(), product.getVersion(), product.getName());
+        }
+        afterId = productList.get(productList.size() - 1).getId();
+      }
+    }
+  }
+
+  private long generateId() {
+    return idGenerator.getAndIncrement();
+  }
+
+  private static long getCurrentTime() {
+    return System.currentTimeMillis();
+  }
+
+  public Product getProductById(long id) {
+    return productCache.get(id, productRepository::findById);
+  }
+
+  /**
+   * Returns the product if it is cached, or null, without going to the repository.
+   */
+  public Product getCachedProductById(long id) {
+    return productCache.getIfPresent(id);
+  }
+
+  /**
+   * Returns the products with the given ids in the same order, with null for ids that are not
+   * found.
+   */
+  public List<Product> getProductsByIds(List<Long> ids) {
+    return productCache.getAll(ids, productRepository::findAllById);
+  }
+
+  /**
+   * @throws IllegalArgumentException if the name is longer than the repository can store
+   */
+  public Product createProduct(String name, int price) {
+    checkName(name);
+    Product product = new Product(generateId(), name, price, getCurrentTime());
+    product.setVersion(catalogVersion.incrementAndGet());
+    productRepository.save(product);
+    writeApplied(product.getId());
+    priceIndex.add(product.getPrice(), product.getId(), product.getVersion());
+    nameIndex.add(product.getId(), product.getVersion(), product.getName());
+    return product;
+  }
+
+  /**
+   * @throws IllegalArgumentException if the map names a field that cannot be updated, holds a
+   *                                  value of the wrong type or a name that is too long
+   */
+  public Product updateProduct(long id, Map<String, Object> fieldMap) {
+    return updateProduct(id, fieldMap, null);
+  }
+
+  /**
+   * Applies the field map to a copy of the current product and swaps the copy in, retrying on a
+   * concurrent write, so readers only ever see whole versions. If {@code expectedVersion} is given,
+   * the update only applies to that version, or to any version for {@link #ANY_VERSION}.
+   *
+   * @return the updated product, or null if there is no product with the id and no expected version
+   * @throws IllegalArgumentException         if the map names a field that cannot be updated,
+   *                                          holds a value of the wrong type or a name that is too
+   *                                          long
+   * @throws ProductVersionConflictException if the product is not at {@code expectedVersion}, or
+   *                                          there is none although a version is expected
+   */
+  public Product updateProduct(long id, Map<String, Object> fieldMap, Long expectedVersion) {
+    while (true) {
+      // the cache may briefly hold the version a concurrent write has just replaced
+      Product current = productRepository.findById(id);
+      checkVersion(id, current, expectedVersion);
+      if (current == null) {
+        return null;
+      }
+      Product product = new Product(id, current.getName(), current.getPrice(), current.getCreated());
+      ProductPatcher.patch(product, fieldMap);
+      checkName(product.getName());
+      product.setVersion(catalogVersion.incrementAndGet());
+      if (productRepository.replace(current.getVersion(), product)) {
+        productCache.invalidate(id);
+        writeApplied(id);
+        if (product.getPrice() != current.getPrice()) {
+          priceIndex.add(product.getPrice(), id, product.getVersion());
+          priceIndex.remove(current.getPrice(), id, current.getVersion());
+        }
+        if (!Objects.equals(product.getName(), current.getName())) {
+          nameIndex.add(id, product.getVersion(), product.getName());
+          nameIndex.remove(id, current.getVersion(), current.getName());
+        }
+        return product;
+      }
+    }
+  }
+
+  public boolean deleteProductById(long id) {
+    return deleteProduct(id, null) != null;
+  }
+
+  /**
+   * Deletes the product, if it is at {@code expectedVersion} when that is given.
+   *
+   * @return the deleted product, or null if there is no product with the id and no expected version
+   * @throws ProductVersionConflictException if the product is not at {@code expectedVersion}, or
+   *                                         there is none although a version is expected
+   */
+  public Product deleteProduct(long id, Long expectedVersion) {
+    while (true) {
+      // the cache may briefly hold the version a concurrent write has just replaced
+      Product current = productRepository.findById(id);
+      checkVersion(id, current, expectedVersion);
+      if (current == null) {
+        return null;
+      }
+      if (productRepository.deleteById(id, current.getVersion())) {
+        productCache.invalidate(id);
+        catalogVersion.incrementAndGet();
+        writeApplied(id);
+        priceIndex.remove(current.getPrice(), id, Long.MAX_VALUE);
+        nameIndex.remove(id, Long.MAX_VALUE, current.getName());
+        return current;
+      }
+    }
+  }
+
+  private static void checkVersion(long id, Product current, Long expectedVersion) {
+    if (expectedVersion == null) {
+      return;
+    }
+    if (current == null) {
+      throw new ProductVersionConflictException(id);
+    }
+    if (expectedVersion != ANY_VERSION && current.getVersion() != expectedVersion) {
+      throw new ProductVersionConflictException(id, current.getVersion());
+    }
+  }
+
+  /**
+   * Runs a group of create, update and delete calls made on this service by the calling thread, so
+   * the repository can commit them together. Until the repository commits, other threads may still
+   * read and cache the products the group replaces, so the group's products are evicted again and
+   * its writes counted in the catalog version only once the batch has committed or rolled back.
+   */
+  public void batch(Runnable writes) {
+    if (batchWrites.get() != null) {
+      productRepository.batch(writes);
+      return;
+    }
+    Set<Long> ids = new HashSet<>();
+    batchWrites.set(ids);
+    try {
+      productRepository.batch(writes);
+    } finally {
+      batchWrites.remove();
+      for (long id : ids) {
+        productCache.invalidate(id);
+      }
+      appliedWrites.addAndGet(ids.size());
+    }
+  }
+
+  /**
+   * Rejects a name the repository cannot store before a write takes an id or a version.
+   */
+  private void checkName(String name) {
+    int maxNameBytes = productRepository.maxNameBytes();
+    // a char takes at most 3 bytes in UTF-8, so most names need no encoding
+    if (name != null && name.length() > maxNameBytes / 3 && name.getBytes(StandardCharsets.UTF_8).length > maxNameBytes) {
+      throw new IllegalArgumentException("Name is longer than " + maxNameBytes + " bytes");
+    }
+  }
+
+  private void writeApplied(long id) {
+    Set<Long> ids = batchWrites.get();
+    if (ids != null) {
+      ids.add(id);
+    } else {
+      appliedWrites.incrementAndGet();
+    }
+  }
+
+  public List<Product> getProductList() {
+    return productRepository.findAll();
+  }
+
+  public List<Product> getProductList(long afterId, int limit) {
+    return productRepository.findAfter(afterId, limit);
+  }
+
+  /**
+   * Returns at most {@code limit} products with {@code minPrice <= price <= maxPrice}, ordered by
+   * price, then id, starting after the product at ({@code afterPrice}, {@code afterId}) if given.
+   */
+  public List<Product> getProductListByPrice(int minPrice, int maxPrice, Integer afterPrice, long afterId, int limit) {
+    ProductPriceIndex.Entry after = afterPrice != null ? new ProductPriceIndex.Entry(afterPrice, afterId) : null;
+    List<Product> productList = new ArrayList<>(Math.min(limit, 1024));
+    for (ProductPriceIndex.Entry entry : priceIndex.range(minPrice, maxPrice, after).keySet()) {
+      if (productList.size() == limit) {
+        break;
+      }
+      // the index is updated after the repository, so skip and prune entries a write has made stale
+      Product product = productRepository.findById(entry.id);
+      if (product != null && product.getPrice() == entry.price) {
+        productList.add(product);
+      } else {
+        priceIndex.remove(entry.price, entry.id, product != null ? product.getVersion() : Long.MAX_VALUE);
+      }
+    }
+    return productList;
+  }
+
+  /**
+   * Returns at most {@code limit} products whose name shares a token with the query, best match
+   * first.
+   */
+  public List<Product> searchProducts(String query, int limit) {
+    return nameIndex.search(query, limit, productRepository.count(), productLookup);
+  }
+
+  public List<String> suggestProductNames(String prefix, int limit) {
+    return nameIndex.suggest(prefix, limit, productLookup);
+  }
+
+  public ProductCacheStats getCacheStats() {
+    return productCache.getStats();
+  }
+
+  /**
+   * Returns the version of the whole catalog, which changes whenever any product is created,
+   * updated or deleted. It changes once the write is committed to the repository, so products read
+   * after it include every write it counts.
+   */
+  public long getCatalogVersion() {
+    return appliedWrites.get();
+  }
+
+  /**
+   * Returns a value that differs between runs of this service, to qualify versions that are not
+   * unique across restarts.
+   */
+  public long getEpoch() {
+    return epoch;
+  }
+
+  public int getProductCount() {
+    return productRepository.count();
+  }
+}
@@ -0,0 +1,35 @@
+package demo.msa.product.service;
+
+/**
+ * Thrown when a conditional write names a product version that is no longer current, or a product
+ * that no longer exists.
+ */
+public class ProductVersionConflictException extends RuntimeException {
+
+  private final long id;
+
+  private final long currentVersion;
+
+  public ProductVersionConflictException(long id) {
+    super("Product " + id + " does not exist");
+    this.id = id;
+    this.currentVersion = -1;
+  }
+
+  public ProductVersionConflictException(long id, long currentVersion) {
+    super("Product " + id + " is at version " + currentVersion);
+    this.id = id;
+    this.currentVersion = currentVersion;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  /**
+   * Returns the version the product is at, or -1 if it does not exist.
+   */
+  public long getCurrentVersion() {
+    return currentVersion;
+  }
+}
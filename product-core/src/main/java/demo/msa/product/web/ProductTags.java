@@ -0,0 +1,65 @@
+package demo.msa.product.web;
+
+import demo.msa.product.model.Product;
+import demo.msa.product.service.ProductService;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entity tags of single products: the service epoch and the product version, followed by a suffix
+ * naming the format for any format but JSON.
+ */
+public final class ProductTags {
+
+  public static final String SMILE_SUFFIX = "-smile";
+
+  public static final String CBOR_SUFFIX = "-cbor";
+
+  public static final String PROTOBUF_SUFFIX = "-protobuf";
+
+  private static final List<String> FORMAT_SUFFIXES = Arrays.asList("", SMILE_SUFFIX, CBOR_SUFFIX, PROTOBUF_SUFFIX);
+
+  private ProductTags() {
+  }
+
+  public static String productTag(long epoch, Product product) {
+    return productTag(epoch, product, "");
+  }
+
+  public static String productTag(long epoch, Product product, String formatSuffix) {
+    return "\"" + epoch + "-" + product.getVersion() + formatSuffix + "\"";
+  }
+
+  /**
+   * Returns the product version an If-Match header asks for: null if there is no header,
+   * {@link ProductService#ANY_VERSION} for "*", which only requires the product to exist, or -1,
+   * which no product has, if it is not a current strong tag from {@link #productTag}, in any format.
+   */
+  public static Long expectedVersion(long epoch, String ifMatch) {
+    if (ifMatch == null) {
+      return null;
+    }
+    String tag = ifMatch.trim();
+    if (tag.equals("*")) {
+      return ProductService.ANY_VERSION;
+    }
+    String prefix = "\"" + epoch + "-";
+    if (!tag.startsWith(prefix) || !tag.endsWith("\"") || tag.length() <= prefix.length() + 1) {
+      return -1L;
+    }
+    String versionAndSuffix = tag.substring(prefix.length(), tag.length() - 1);
+    int suffix = versionAndSuffix.indexOf('-');
+    String version = suffix >= 0 ? versionAndSuffix.substring(0, suffix) : versionAndSuffix;
+    if (!FORMAT_SUFFIXES.contains(versionAndSuffix.substring(version.length()))) {
+      return -1L;
+    }
+    try {
+      long expected = Long.parseLong(version);
+      // only the digits productTag writes, no sign or leading zeros
+      return Long.toString(expected).equals(version) ? expected : -1L;
+    } catch (NumberFormatException e) {
+      return -1L;
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package demo.msa.product.test;
+
+import demo.msa.product.model.Product;
+import demo.msa.product.repository.ColumnarProductRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.util.List;
+
+public class ColumnarProductRepositoryTest {
+
+  private final ColumnarProductRepository repository = new ColumnarProductRepository();
+
+  @Test
+  public void saveAndFindById() throws Exception {
+    repository.save(new Product(1, "MacBook", 10000, 1L));
+    repository.save(new Product(2, null, 7000, 2L));
+    Product product = repository.findById(1);
+    Assertions.assertThat(product.getName()).isEqualTo("MacBook");
+    Assertions.assertThat(product.getPrice()).isEqualTo(10000);
+    Assertions.assertThat(product.getCreated()).isEqualTo(1L);
+    Assertions.assertThat(repository.findById(2).getName()).isNull();
+    Assertions.assertThat(repository.findById(3)).isNull();
+  }
+
+  @Test
+  public void saveReplacesExistingProduct() throws Exception {
+    repository.save(new Product(1, "MacBook", 10000, 1L));
+    repository.save(new Product(1, "MacBook", 9000, 1L));
+    Assertions.assertThat(repository.findById(1).getPrice()).isEqualTo(9000);
+    Assertions.assertThat(repository.count()).isEqualTo(1);
+  }
+
+  @Test
+  public void findAllKeepsIdOrder() throws Exception {
+    repository.save(new Product(3, "MacBook Pro", 12000, 3L));
+    repository.save(new Product(1, "MacBook", 10000, 1L));
+    repository.save(new Product(2, "MacBook Air", 7000, 2L));
+    List<Product> productList = repository.findAll();
+    Assertions.assertThat(productList).extracting("id").containsExactly(1L, 2L, 3L);
+    Assertions.assertThat(repository.maxId()).isEqualTo(3);
+  }
+
+  @Test
+  public void deleteAndCompact() throws Exception {
+    for (long id = 1; id <= 5000; id++) {
+      repository.save(new Product(id, "iMac", 8000, id));
+    }
+    for (long id = 1; id <= 5000; id++) {
+      if (id % 3 != 0) {
+        Assertions.assertThat(repository.deleteById(id)).isTrue();
+      }
+    }
+    Assertions.assertThat(repository.deleteById(1)).isFalse();
+    Assertions.assertThat(repository.count()).isEqualTo(1666);
+    Assertions.assertThat(repository.findById(4998).getId()).isEqualTo(4998);
+    Assertions.assertThat(repository.findById(4999)).isNull();
+    Assertions.assertThat(repository.findAll()).hasSize(1666);
+    Assertions.assertThat(repository.maxId()).isEqualTo(4998);
+  }
+
+  @Test
+  public void replaceChecksVersion() throws Exception {
+    Product product = new Product(1, "MacBook", 10000, 1L);
+    product.setVersion(1);
+    repository.save(product);
+    Product updated = new Product(1, "MacBook", 9000, 1L);
+    updated.setVersion(2);
+    Assertions.assertThat(repository.replace(2, updated)).isFalse();
+    Assertions.assertThat(repository.replace(1, updated)).isTrue();
+    Assertions.assertThat(repository.findById(1).getPrice()).isEqualTo(9000);
+    Assertions.assertThat(repository.deleteById(1, 1)).isFalse();
+    Assertions.assertThat(repository.deleteById(1, 2)).isTrue();
+    Assertions.assertThat(repository.replace(2, updated)).isFalse();
+  }
+
+  @Test
+  public void dropsNamesNoLongerUsed() throws Exception {
+    for (int round = 0; round < 1000; round++) {
+      repository.save(new Product(1, "MacBook " + round, 10000, 1L));
+      repository.save(new Product(2, "MacBook", 7000, 2L));
+      repository.save(new Product(3, "iMac " + round, 8000, 3L));
+      repository.deleteById(3);
+    }
+    Assertions.assertThat(repository.getNameCount()).isEqualTo(2);
+    Assertions.assertThat(repository.findById(1).getName()).isEqualTo("MacBook 999");
+    Assertions.assertThat(repository.findById(2).getName()).isEqualTo("MacBook");
+
+    // a reused code names the new name only
+    repository.save(new Product(4, "Mac mini", 5000, 4L));
+    Assertions.assertThat(repository.getNameCount()).isEqualTo(3);
+    Assertions.assertThat(repository.findAll()).extracting("name").containsExactly("MacBook 999", "MacBook", "Mac mini");
+  }
+}
@@ -0,0 +1,71 @@
+package demo.msa.product.test;
+
+import demo.msa.product.model.Product;
+import demo.msa.product.repository.JdbcProductRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+public class JdbcProductRepositoryTest {
+
+  // a named in-memory database lives as long as the pool keeps a connection open
+  private final JdbcProductRepository repository = new JdbcProductRepository("jdbc:h2:mem:" + UUID.randomUUID(), "sa", "");
+
+  @After
+  public void close() {
+    repository.close();
+  }
+
+  @Test
+  public void saveAndFind() throws Exception {
+    repository.save(new Product(2, "MacBook Air", 7000, 2L));
+    repository.save(new Product(1, "MacBook", 10000, 1L));
+    repository.save(new Product(3, null, 12000, 3L));
+    repository.save(new Product(1, "MacBook", 9000, 1L));
+    Assertions.assertThat(repository.findById(1).getPrice()).isEqualTo(9000);
+    Assertions.assertThat(repository.findById(3).getName()).isNull();
+    Assertions.assertThat(repository.findAll()).extracting("id").containsExactly(1L, 2L, 3L);
+    Assertions.assertThat(repository.findAfter(1, 1)).extracting("id").containsExactly(2L);
+    List<Product> productList = repository.findAllById(Arrays.asList(3L, 4L, 1L));
+    Assertions.assertThat(productList.get(0).getId()).isEqualTo(3);
+    Assertions.assertThat(productList.get(1)).isNull();
+    Assertions.assertThat(productList.get(2).getId()).isEqualTo(1);
+    Assertions.assertThat(repository.count()).isEqualTo(3);
+    Assertions.assertThat(repository.maxId()).isEqualTo(3);
+  }
+
+  @Test
+  public void checksVersion() throws Exception {
+    Product product = new Product(1, "MacBook", 10000, 1L);
+    product.setVersion(1);
+    repository.save(product);
+    Product updated = new Product(1, "MacBook", 9000, 1L);
+    updated.setVersion(2);
+    Assertions.assertThat(repository.replace(2, updated)).isFalse();
+    Assertions.assertThat(repository.replace(1, updated)).isTrue();
+    Assertions.assertThat(repository.findById(1).getVersion()).isEqualTo(2);
+    Assertions.assertThat(repository.deleteById(1, 1)).isFalse();
+    Assertions.assertThat(repository.deleteById(1, 2)).isTrue();
+    Assertions.assertThat(repository.deleteById(1)).isFalse();
+  }
+
+  @Test
+  public void rollsBackFailedBatch() throws Exception {
+    repository.save(new Product(1, "MacBook", 10000, 1L));
+    try {
+      repository.batch(() -> {
+        repository.save(new Product(2, "MacBook Air", 7000, 2L));
+        repository.deleteById(1);
+        throw new IllegalStateException("abort");
+      });
+      Assertions.fail("batch did not throw");
+    } catch (IllegalStateException e) {
+      Assertions.assertThat(e).hasMessage("abort");
+    }
+    Assertions.assertThat(repository.findAll()).extracting("id").containsExactly(1L);
+  }
+}
@@ -0,0 +1,164 @@
+package demo.msa.product.test;
+
+import demo.msa.product.model.Product;
+import demo.msa.product.repository.JdbcProductRepository;
+import demo.msa.product.repository.JournaledProductRepository;
+import demo.msa.product.repository.MemoryProductRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class JournaledProductRepositoryTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private JournaledProductRepository open(long snapshotInterval) throws IOException {
+    return new JournaledProductRepository(new MemoryProductRepository(), folder.getRoot(), snapshotInterval);
+  }
+
+  @Test
+  public void recoversFromLog() throws Exception {
+    try (JournaledProductRepository repository = open(1000)) {
+      repository.save(new Product(1, "MacBook", 10000, 1L));
+      repository.save(new Product(2, "MacBook Air", 7000, 2L));
+      repository.save(new Product(3, "MacBook Pro", 12000, 3L));
+      Product product = new Product(1, "MacBook", 9000, 1L);
+      product.setVersion(4);
+      repository.save(product);
+      repository.deleteById(2);
+    }
+    try (JournaledProductRepository repository = open(1000)) {
+      Assertions.assertThat(repository.findAll()).extracting("id").containsExactly(1L, 3L);
+      Assertions.assertThat(repository.findById(1).getPrice()).isEqualTo(9000);
+      Assertions.assertThat(repository.findById(1).getVersion()).isEqualTo(4);
+      Assertions.assertThat(repository.findById(3).getName()).isEqualTo("MacBook Pro");
+    }
+  }
+
+  @Test
+  public void recoversFromSnapshotAndLogTail() throws Exception {
+    try (JournaledProductRepository repository = open(1000)) {
+      for (long id = 1; id <= 500; id++) {
+        repository.save(new Product(id, "iMac " + id, (int) id, id));
+      }
+      repository.snapshot();
+      repository.deleteById(1);
+      repository.save(new Product(501, null, 501, 501L));
+    }
+    File[] segments = folder.getRoot().listFiles((dir, name) -> name.startsWith("wal-"));
+    File[] snapshots = folder.getRoot().listFiles((dir, name) -> name.startsWith("snapshot-"));
+    Assertions.assertThat(snapshots).hasSize(1);
+    Assertions.assertThat(segments).hasSize(1);
+    try (JournaledProductRepository repository = open(1000)) {
+      Assertions.assertThat(repository.count()).isEqualTo(500);
+      Assertions.assertThat(repository.findById(1)).isNull();
+      Assertions.assertThat(repository.findById(250).getName()).isEqualTo("iMac 250");
+      Assertions.assertThat(repository.findById(501).getName()).isNull();
+    }
+  }
+
+  @Test
+  public void ignoresTornTail() throws Exception {
+    try (JournaledProductRepository repository = open(1000)) {
+      repository.save(new Product(1, "MacBook", 10000, 1L));
+    }
+    File[] segments = folder.getRoot().listFiles((dir, name) -> name.startsWith("wal-"));
+    try (FileOutputStream out = new FileOutputStream(segments[0], true)) {
+      out.write(new byte[]{0, 0, 0, 25, 1, 2});
+    }
+    try (JournaledProductRepository repository = open(1000)) {
+      Assertions.assertThat(repository.count()).isEqualTo(1);
+      repository.save(new Product(2, "MacBook Air", 7000, 2L));
+    }
+    try (JournaledProductRepository repository = open(1000)) {
+      Assertions.assertThat(repository.findAll()).extracting("id").containsExactly(1L, 2L);
+    }
+  }
+
+  @Test
+  public void snapshotsAfterInterval() throws Exception {
+    try (JournaledProductRepository repository = open(10)) {
+      for (long id = 1; id <= 25; id++) {
+        repository.save(new Product(id, "iMac", 8000, id));
+      }
+    }
+    File[] snapshots = folder.getRoot().listFiles((dir, name) -> name.startsWith("snapshot-"));
+    Assertions.assertThat(snapshots).isNotEmpty();
+    try (JournaledProductRepository repository = open(10)) {
+      Assertions.assertThat(repository.count()).isEqualTo(25);
+    }
+  }
+
+  @Test
+  public void recoversBatch() throws Exception {
+    try (JournaledProductRepository repository = open(1000)) {
+      repository.batch(() -> {
+        for (long id = 1; id <= 100; id++) {
+          repository.save(new Product(id, "iMac", 8000, id));
+        }
+        repository.deleteById(50);
+      });
+    }
+    try (JournaledProductRepository repository = open(1000)) {
+      Assertions.assertThat(repository.count()).isEqualTo(99);
+      Assertions.assertThat(repository.findById(50)).isNull();
+    }
+  }
+
+  @Test
+  public void batchesInOneTransactionOfJdbcDelegate() throws Exception {
+    JdbcProductRepository delegate = new JdbcProductRepository("jdbc:h2:mem:" + UUID.randomUUID(), "sa", "");
+    ExecutorService reader = Executors.newSingleThreadExecutor();
+    try (JournaledProductRepository repository = new JournaledProductRepository(delegate, folder.getRoot(), 1000)) {
+      repository.batch(() -> {
+        repository.save(new Product(1, "MacBook", 10000, 1L));
+        repository.save(new Product(2, "MacBook Air", 7000, 2L));
+        try {
+          // another connection sees none of the batch until it commits
+          Assertions.assertThat(reader.submit(repository::count).get(10, TimeUnit.SECONDS)).isZero();
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+      });
+      Assertions.assertThat(reader.submit(repository::count).get(10, TimeUnit.SECONDS)).isEqualTo(2);
+    } finally {
+      reader.shutdown();
+    }
+    // closing the journal closes the delegate's pool
+    Assertions.assertThatThrownBy(delegate::count).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void doesNotRecoverRolledBackBatch() throws Exception {
+    JdbcProductRepository delegate = new JdbcProductRepository("jdbc:h2:mem:" + UUID.randomUUID(), "sa", "");
+    try (JournaledProductRepository repository = new JournaledProductRepository(delegate, folder.getRoot(), 1000)) {
+      repository.save(new Product(1, "MacBook", 10000, 1L));
+      try {
+        repository.batch(() -> {
+          repository.save(new Product(1, "MacBook", 1, 1L));
+          repository.save(new Product(2, "MacBook Air", 7000, 2L));
+          throw new IllegalStateException("abort");
+        });
+        Assertions.fail("batch did not throw");
+      } catch (IllegalStateException e) {
+        Assertions.assertThat(e).hasMessage("abort");
+      }
+      Assertions.assertThat(repository.findById(1).getPrice()).isEqualTo(10000);
+      Assertions.assertThat(repository.findById(2)).isNull();
+    }
+    try (JournaledProductRepository repository = open(1000)) {
+      Assertions.assertThat(repository.findAll()).extracting("id").containsExactly(1L);
+      Assertions.assertThat(repository.findById(1).getPrice()).isEqualTo(10000);
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package demo.msa.product.test;
+
+import demo.msa.product.model.Product;
+import demo.msa.product.repository.MappedProductRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+public class MappedProductRepositoryTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private MappedProductRepository open() throws IOException {
+    return new MappedProductRepository(new File(folder.getRoot(), "products.dat"));
+  }
+
+  @Test
+  public void reopensWithProducts() throws Exception {
+    try (MappedProductRepository repository = open()) {
+      repository.save(new Product(1, "MacBook", 10000, 1L));
+      repository.save(new Product(2, null, 7000, 2L));
+      repository.save(new Product(3, "MacBook Pro", 12000, 3L));
+      Product product = new Product(1, "MacBook", 9000, 1L);
+      product.setVersion(4);
+      repository.save(product);
+      repository.deleteById(3);
+    }
+    try (MappedProductRepository repository = open()) {
+      Assertions.assertThat(repository.findAll()).extracting("id").containsExactly(1L, 2L);
+      Assertions.assertThat(repository.findById(1).getPrice()).isEqualTo(9000);
+      Assertions.assertThat(repository.findById(1).getVersion()).isEqualTo(4);
+      Assertions.assertThat(repository.findById(2).getName()).isNull();
+      Assertions.assertThat(repository.maxId()).isEqualTo(2);
+    }
+  }
+
+  @Test
+  public void growsPastOneSegment() throws Exception {
+    try (MappedProductRepository repository = open()) {
+      for (long id = 1; id <= 70000; id++) {
+        repository.save(new Product(id, "iMac " + id, (int) id, id));
+      }
+    }
+    try (MappedProductRepository repository = open()) {
+      Assertions.assertThat(repository.count()).isEqualTo(70000);
+      Assertions.assertThat(repository.findById(69999).getName()).isEqualTo("iMac 69999");
+      Assertions.assertThat(repository.findAfter(65535, 2)).extracting("id").containsExactly(65536L, 65537L);
+    }
+  }
+
+  @Test
+  public void keepsNewerVersionOfUnfreedSlot() throws Exception {
+    File file = new File(folder.getRoot(), "products.dat");
+    try (MappedProductRepository repository = open()) {
+      Product product = new Product(1, "MacBook", 10000, 1L);
+      product.setVersion(1);
+      repository.save(product);
+      Product updated = new Product(1, "MacBook", 9000, 1L);
+      updated.setVersion(2);
+      repository.replace(1, updated);
+    }
+    // bring the old slot back to life, as if the process died before freeing it
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.seek(0);
+      raf.write(1);
+    }
+    try (MappedProductRepository repository = open()) {
+      Assertions.assertThat(repository.count()).isEqualTo(1);
+      Assertions.assertThat(repository.findById(1).getPrice()).isEqualTo(9000);
+    }
+  }
+
+  @Test
+  public void checksVersion() throws Exception {
+    try (MappedProductRepository repository = open()) {
+      Product product = new Product(1, "MacBook", 10000, 1L);
+      product.setVersion(1);
+      repository.save(product);
+      Product updated = new Product(1, "MacBook", 9000, 1L);
+      updated.setVersion(2);
+      Assertions.assertThat(repository.replace(2, updated)).isFalse();
+      Assertions.assertThat(repository.replace(1, updated)).isTrue();
+      Assertions.assertThat(repository.deleteById(1, 1)).isFalse();
+      Assertions.assertThat(repository.deleteById(1, 2)).isTrue();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsLongName() throws Exception {
+    StringBuilder name = new StringBuilder();
+    for (int i = 0; i <= MappedProductRepository.MAX_NAME_BYTES; i++) {
+      name.append('x');
+    }
+    try (MappedProductRepository repository = open()) {
+      repository.save(new Product(1, name.toString(), 10000, 1L));
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void refusesSecondOpen() throws Exception {
+    try (MappedProductRepository repository = open()) {
+      open();
+    }
+  }
+}
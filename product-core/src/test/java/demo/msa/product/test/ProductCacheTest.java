@@ -0,0 +1,169 @@
+package demo.msa.product.test;
+
+import demo.msa.product.model.Product;
+import demo.msa.product.service.ProductCache;
+import demo.msa.product.service.ProductCacheStats;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongFunction;
+
+public class ProductCacheTest {
+
+  private final AtomicInteger loads = new AtomicInteger();
+
+  private final LongFunction<Product> loader = id -> {
+    loads.incrementAndGet();
+    return id > 0 ? new Product(id, "Product " + id, 1000, id) : null;
+  };
+
+  @Test
+  public void readsThrough() throws Exception {
+    ProductCache cache = new ProductCache(100, 1 << 20);
+    Assertions.assertThat(cache.get(1, loader).getName()).isEqualTo("Product 1");
+    Assertions.assertThat(cache.get(1, loader).getName()).isEqualTo("Product 1");
+    Assertions.assertThat(cache.get(-1, loader)).isNull();
+    Assertions.assertThat(cache.get(-1, loader)).isNull();
+    Assertions.assertThat(loads.get()).isEqualTo(3);
+    ProductCacheStats stats = cache.getStats();
+    Assertions.assertThat(stats.getHits()).isEqualTo(1);
+    Assertions.assertThat(stats.getMisses()).isEqualTo(3);
+    Assertions.assertThat(stats.getSize()).isEqualTo(1);
+  }
+
+  @Test
+  public void reloadsAfterInvalidate() throws Exception {
+    ProductCache cache = new ProductCache(100, 1 << 20);
+    cache.get(1, loader);
+    cache.invalidate(1);
+    cache.get(1, loader);
+    Assertions.assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void doesNotCacheLoadOverlappingInvalidate() throws Exception {
+    ProductCache cache = new ProductCache(100, 1 << 20);
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch written = new CountDownLatch(1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Product> read = executor.submit(() -> cache.get(1, id -> {
+        loading.countDown();
+        await(written);
+        return loader.apply(id);
+      }));
+      loading.await();
+      // a write invalidates while the read is still loading the old product, without waiting for it
+      cache.invalidate(1);
+      written.countDown();
+      Assertions.assertThat(read.get(5, TimeUnit.SECONDS).getId()).isEqualTo(1);
+    } finally {
+      executor.shutdown();
+    }
+    Assertions.assertThat(cache.getIfPresent(1)).isNull();
+    cache.get(1, loader);
+    Assertions.assertThat(cache.getIfPresent(1)).isNotNull();
+    Assertions.assertThat(loads.get()).isEqualTo(2);
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Test
+  public void peeksWithoutLoading() throws Exception {
+    ProductCache cache = new ProductCache(100, 1 << 20);
+    Assertions.assertThat(cache.getIfPresent(1)).isNull();
+    cache.get(1, loader);
+    Assertions.assertThat(cache.getIfPresent(1).getId()).isEqualTo(1);
+    Assertions.assertThat(loads.get()).isEqualTo(1);
+    ProductCacheStats stats = cache.getStats();
+    Assertions.assertThat(stats.getHits()).isZero();
+    Assertions.assertThat(stats.getMisses()).isEqualTo(1);
+    Assertions.assertThat(new ProductCache(0, 0).getIfPresent(1)).isNull();
+  }
+
+  @Test
+  public void getsAllInOrder() throws Exception {
+    ProductCache cache = new ProductCache(100, 1 << 20);
+    cache.get(2, loader);
+    List<Product> productList = cache.getAll(Arrays.asList(3L, 2L, -1L), ids -> {
+      List<Product> loaded = new ArrayList<>();
+      for (Long id : ids) {
+        loaded.add(loader.apply(id));
+      }
+      return loaded;
+    });
+    Assertions.assertThat(productList.get(0).getId()).isEqualTo(3);
+    Assertions.assertThat(productList.get(1).getId()).isEqualTo(2);
+    Assertions.assertThat(productList.get(2)).isNull();
+    Assertions.assertThat(loads.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void boundsSize() throws Exception {
+    ProductCache cache = new ProductCache(100, 1 << 20);
+    for (long id = 1; id <= 1000; id++) {
+      cache.get(id, loader);
+    }
+    ProductCacheStats stats = cache.getStats();
+    Assertions.assertThat(stats.getSize()).isLessThanOrEqualTo(100);
+    Assertions.assertThat(stats.getEvictions()).isGreaterThanOrEqualTo(900);
+  }
+
+  @Test
+  public void boundsWeight() throws Exception {
+    char[] name = new char[1000];
+    Arrays.fill(name, 'x');
+    ProductCache cache = new ProductCache(1000, 100_000);
+    for (long id = 1; id <= 1000; id++) {
+      cache.get(id, key -> new Product(key, new String(name), 1000, key));
+    }
+    ProductCacheStats stats = cache.getStats();
+    Assertions.assertThat(stats.getWeight()).isLessThanOrEqualTo(100_000);
+    Assertions.assertThat(stats.getSize()).isLessThan(100);
+  }
+
+  @Test
+  public void keepsHotProductsThroughScan() throws Exception {
+    ProductCache cache = new ProductCache(100, 1 << 20);
+    // the hot products are read once per 200 cold ones, which would push them out of an LRU cache
+    long coldId = 1000;
+    for (int round = 0; round < 50; round++) {
+      for (long id = 1; id <= 10; id++) {
+        cache.get(id, loader);
+      }
+      for (int i = 0; i < 200; i++) {
+        cache.get(coldId++, loader);
+      }
+    }
+    cache.getStats();
+    loads.set(0);
+    for (long id = 1; id <= 10; id++) {
+      cache.get(id, loader);
+    }
+    Assertions.assertThat(loads.get()).isZero();
+  }
+
+  @Test
+  public void disabled() throws Exception {
+    ProductCache cache = new ProductCache(0, 0);
+    cache.get(1, loader);
+    cache.get(1, loader);
+    Assertions.assertThat(loads.get()).isEqualTo(2);
+    Assertions.assertThat(cache.getStats().isEnabled()).isFalse();
+  }
+}
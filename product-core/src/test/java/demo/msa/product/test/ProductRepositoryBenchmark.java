@@ -0,0 +1,168 @@
+package demo.msa.product.test;
+
+import demo.msa.product.model.Product;
+import demo.msa.product.repository.ColumnarProductRepository;
+import demo.msa.product.repository.JdbcProductRepository;
+import demo.msa.product.repository.JournaledProductRepository;
+import demo.msa.product.repository.MappedProductRepository;
+import demo.msa.product.repository.MemoryProductRepository;
+import demo.msa.product.repository.ProductRepository;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compares the repository engines on the same workload: loading the catalog, point reads from one
+ * and from all cores, conditional updates, paging through the catalog and deleting it. Run with
+ *
+ * <pre>
+ * mvn -pl product-core test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dstart-class=demo.msa.product.test.ProductRepositoryBenchmark -Dexec.args="200000"
+ * </pre>
+ *
+ * where the argument is the catalog size. Results are in operations per second.
+ */
+public class ProductRepositoryBenchmark {
+
+  private static final int PAGE_SIZE = 1000;
+
+  public static void main(String[] args) throws Exception {
+    int products = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+    int threads = Runtime.getRuntime().availableProcessors();
+    File directory = Files.createTempDirectory("product-bench").toFile();
+    try {
+      // a small round first, so every engine runs compiled code in the measured round
+      run(new File(directory, "warmup"), Math.min(products, 10000), threads, false);
+      System.out.printf("%d products, %d threads%n", products, threads);
+      System.out.printf("%-16s %12s %12s %12s %12s %12s %12s%n",
+          "engine", "save", "get", "get (" + threads + "t)", "replace", "page", "delete");
+      run(new File(directory, "run"), products, threads, true);
+    } finally {
+      delete(directory);
+    }
+  }
+
+  private static void run(File directory, int products, int threads, boolean print) throws Exception {
+    Map<String, Callable<ProductRepository>> engines = new LinkedHashMap<>();
+    engines.put("memory", MemoryProductRepository::new);
+    engines.put("columnar", ColumnarProductRepository::new);
+    engines.put("mapped", () -> new MappedProductRepository(new File(directory, "products.dat")));
+    engines.put("h2 (mem)", () -> new JdbcProductRepository("jdbc:h2:mem:" + directory.getName() + ";DB_CLOSE_DELAY=-1", "sa", ""));
+    engines.put("h2 (file)", () -> new JdbcProductRepository("jdbc:h2:" + new File(directory, "h2").getAbsolutePath(), "sa", ""));
+    engines.put("memory+journal", () -> new JournaledProductRepository(new MemoryProductRepository(), new File(directory, "journal"), 1_000_000));
+    for (Map.Entry<String, Callable<ProductRepository>> engine : engines.entrySet()) {
+      ProductRepository repository = engine.getValue().call();
+      try {
+        double save = measure(() -> {
+          repository.batch(() -> {
+            for (long id = 1; id <= products; id++) {
+              Product product = new Product(id, "Product " + id, (int) (id % 10000), id);
+              product.setVersion(id);
+              repository.save(product);
+            }
+          });
+          return products;
+        });
+        double get = measure(() -> get(repository, products, products));
+        double parallelGet = parallel(threads, () -> get(repository, products, products));
+        double replace = measure(() -> {
+          for (int i = 0; i < products / 10; i++) {
+            long id = 1 + ThreadLocalRandom.current().nextInt(products);
+            Product current = repository.findById(id);
+            Product product = new Product(id, current.getName(), current.getPrice() + 1, current.getCreated());
+            product.setVersion(current.getVersion() + products);
+            repository.replace(current.getVersion(), product);
+          }
+          return products / 10;
+        });
+        double page = measure(() -> {
+          long afterId = 0;
+          List<Product> productList;
+          int pages = 0;
+          while (!(productList = repository.findAfter(afterId, PAGE_SIZE)).isEmpty()) {
+            afterId = productList.get(productList.size() - 1).getId();
+            pages++;
+          }
+          return pages;
+        });
+        double delete = measure(() -> {
+          repository.batch(() -> {
+            for (long id = 1; id <= products; id++) {
+              repository.deleteById(id);
+            }
+          });
+          return products;
+        });
+        if (print) {
+          System.out.printf("%-16s %12.0f %12.0f %12.0f %12.0f %12.0f %12.0f%n",
+              engine.getKey(), save, get, parallelGet, replace, page, delete);
+        }
+      } finally {
+        if (repository instanceof Closeable) {
+          ((Closeable) repository).close();
+        }
+      }
+    }
+  }
+
+  private static int get(ProductRepository repository, int products, int reads) {
+    int found = 0;
+    for (int i = 0; i < reads; i++) {
+      if (repository.findById(1 + ThreadLocalRandom.current().nextInt(products)) != null) {
+        found++;
+      }
+    }
+    if (found != reads) {
+      throw new IllegalStateException("missing products");
+    }
+    return reads;
+  }
+
+  /**
+   * Returns the operations per second of a call that returns how many operations it ran.
+   */
+  private static double measure(Callable<Integer> operations) throws Exception {
+    long start = System.nanoTime();
+    int count = operations.call();
+    return count * 1e9 / (System.nanoTime() - start);
+  }
+
+  private static double parallel(int threads, Callable<Integer> operations) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      long start = System.nanoTime();
+      List<Future<Integer>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(operations));
+      }
+      long count = 0;
+      for (Future<Integer> future : futures) {
+        count += future.get();
+      }
+      return count * 1e9 / (System.nanoTime() - start);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static void delete(File file) throws IOException {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        delete(child);
+      }
+    }
+    Files.deleteIfExists(file.toPath());
+  }
+}
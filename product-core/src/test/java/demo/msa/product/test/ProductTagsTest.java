@@ -0,0 +1,41 @@
+package demo.msa.product.test;
+
+import demo.msa.product.model.Product;
+import demo.msa.product.service.ProductService;
+import demo.msa.product.web.ProductTags;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class ProductTagsTest {
+
+  private final Product product = new Product(1, "MacBook", 10000, 1L);
+
+  public ProductTagsTest() {
+    product.setVersion(42);
+  }
+
+  @Test
+  public void expectedVersionOfProductTag() throws Exception {
+    Assertions.assertThat(ProductTags.expectedVersion(7, ProductTags.productTag(7, product))).isEqualTo(42L);
+    Assertions.assertThat(ProductTags.expectedVersion(7, ProductTags.productTag(7, product, ProductTags.CBOR_SUFFIX))).isEqualTo(42L);
+    Assertions.assertThat(ProductTags.expectedVersion(7, " " + ProductTags.productTag(7, product) + " ")).isEqualTo(42L);
+    Assertions.assertThat(ProductTags.expectedVersion(7, null)).isNull();
+  }
+
+  @Test
+  public void anyTagRequiresExistingProduct() throws Exception {
+    Assertions.assertThat(ProductTags.expectedVersion(7, "*")).isEqualTo(ProductService.ANY_VERSION);
+  }
+
+  @Test
+  public void rejectsUnknownTags() throws Exception {
+    Assertions.assertThat(ProductTags.expectedVersion(8, ProductTags.productTag(7, product))).isEqualTo(-1L);
+    Assertions.assertThat(ProductTags.expectedVersion(7, "\"7-42-garbage\"")).isEqualTo(-1L);
+    Assertions.assertThat(ProductTags.expectedVersion(7, "\"7-42-\"")).isEqualTo(-1L);
+    Assertions.assertThat(ProductTags.expectedVersion(7, "\"7-+42\"")).isEqualTo(-1L);
+    Assertions.assertThat(ProductTags.expectedVersion(7, "\"7-042\"")).isEqualTo(-1L);
+    Assertions.assertThat(ProductTags.expectedVersion(7, "\"7--cbor\"")).isEqualTo(-1L);
+    Assertions.assertThat(ProductTags.expectedVersion(7, "W/\"7-42\"")).isEqualTo(-1L);
+    Assertions.assertThat(ProductTags.expectedVersion(7, "\"bogus\"")).isEqualTo(-1L);
+  }
+}
@@ -0,0 +1,12 @@
+package demo.msa.product;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class ReactiveProductApplication {
+
+  public static void main(String[] args) {
+    SpringApplication.run(ReactiveProductApplication.class, args);
+  }
+}
@@ -0,0 +1,34 @@
+package demo.msa.product.conf;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+@Configuration
+public class ReactiveConf {
+
+  @Value("${product.reactive.offload:true}")
+  private boolean offload;
+
+  @Value("${product.reactive.threads:64}")
+  private int threads;
+
+  @Value("${product.reactive.queue-capacity:1000}")
+  private int queueCapacity;
+
+  /**
+   * Runs the product service calls off the event loop on at most {@code threads} threads, with
+   * at most {@code queueCapacity} calls waiting, and rejects calls beyond that. Without offload,
+   * the calls run on the event loop, which only suits the repositories that keep products in
+   * memory.
+   */
+  @Bean(destroyMethod = "dispose")
+  public Scheduler productScheduler() {
+    if (!offload) {
+      return Schedulers.immediate();
+    }
+    return Schedulers.newBoundedElastic(threads, queueCapacity, "product-service");
+  }
+}
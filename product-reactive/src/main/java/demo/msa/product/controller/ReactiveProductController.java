@@ -0,0 +1,296 @@
+package demo.msa.product.controller;
+
+import demo.msa.product.model.Product;
+import demo.msa.product.request.ProductBulkOperation;
+import demo.msa.product.request.ProductIdsRequest;
+import demo.msa.product.request.ProductRequest;
+import demo.msa.product.response.ProductBulkResponse;
+import demo.msa.product.response.ProductBulkResult;
+import demo.msa.product.response.ProductResponse;
+import demo.msa.product.service.ProductCacheStats;
+import demo.msa.product.service.ProductCursor;
+import demo.msa.product.service.ProductService;
+import demo.msa.product.service.ProductVersionConflictException;
+import demo.msa.product.service.ReactiveProductService;
+import demo.msa.product.web.ProductTags;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * The product API of the servlet service on WebFlux: the same paths, parameters, status codes and
+ * entity tags, served from {@link ReactiveProductService}.
+ */
+@RestController
+public class ReactiveProductController {
+
+  private static final int MAX_PAGE_SIZE = 1000;
+
+  private static final int DEFAULT_SEARCH_SIZE = 10;
+
+  private static final int MAX_BULK_SIZE = 10000;
+
+  private static final String NDJSON = "application/x-ndjson";
+
+  private static final String RETRY_AFTER_SECONDS = "1";
+
+  @Autowired
+  private ReactiveProductService productService;
+
+  @GetMapping("/product/{id}")
+  public Mono<ResponseEntity<Product>> getProductById(@PathVariable("id") long id) {
+    // the tag lets WebFlux answer If-None-Match with 304 before the product is serialized
+    return productService.getProductById(id)
+        .map(product -> ResponseEntity.ok().eTag(ProductTags.productTag(productService.getEpoch(), product)).body(product))
+        .defaultIfEmpty(ResponseEntity.ok().build());
+  }
+
+  @PostMapping("/product")
+  public Mono<ResponseEntity<Product>> createProduct(@RequestBody ProductRequest productRequest) {
+    return productService.createProduct(productRequest.getName(), productRequest.getPrice())
+        .map(ResponseEntity::ok)
+        .onErrorResume(IllegalArgumentException.class, e -> Mono.just(ResponseEntity.badRequest().build()));
+  }
+
+  @PutMapping("/product/{id}")
+  public Mono<ResponseEntity<Product>> updateProduct(@PathVariable("id") long id, @RequestBody Map<String, Object> fieldMap,
+                                                     @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+    long epoch = productService.getEpoch();
+    return productService.updateProduct(id, fieldMap, ProductTags.expectedVersion(epoch, ifMatch))
+        .map(product -> ResponseEntity.ok().eTag(ProductTags.productTag(epoch, product)).body(product))
+        .defaultIfEmpty(ResponseEntity.ok().build())
+        .onErrorResume(ProductVersionConflictException.class, e -> Mono.just(ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build()))
+        .onErrorResume(IllegalArgumentException.class, e -> Mono.just(ResponseEntity.badRequest().build()));
+  }
+
+  @DeleteMapping("/product/{id}")
+  public Mono<ResponseEntity<Product>> deleteProductById(@PathVariable("id") long id,
+                                                         @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+    return productService.deleteProduct(id, ProductTags.expectedVersion(productService.getEpoch(), ifMatch))
+        .map(ResponseEntity::ok)
+        .defaultIfEmpty(ResponseEntity.ok().build())
+        .onErrorResume(ProductVersionConflictException.class, e -> Mono.just(ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build()));
+  }
+
+  @GetMapping(value = "/product", params = "ids")
+  public Mono<ResponseEntity<ProductResponse>> getProductsByIds(@RequestParam("ids") List<Long> ids, ServerWebExchange exchange) {
+    if (exchange.checkNotModified(catalogTag())) {
+      return Mono.empty();
+    }
+    return multiGet(ids);
+  }
+
+  @PostMapping("/product/_mget")
+  public Mono<ResponseEntity<ProductResponse>> getProductsByIds(@RequestBody ProductIdsRequest request) {
+    if (request.getIds() == null) {
+      return Mono.just(ResponseEntity.badRequest().build());
+    }
+    return multiGet(request.getIds());
+  }
+
+  private Mono<ResponseEntity<ProductResponse>> multiGet(List<Long> ids) {
+    List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+    if (distinctIds.size() > MAX_PAGE_SIZE || distinctIds.contains(null)) {
+      return Mono.just(ResponseEntity.badRequest().build());
+    }
+    return productService.getProductsByIds(distinctIds).map(found -> {
+      List<Product> productList = new ArrayList<>(found.size());
+      List<Long> missing = new ArrayList<>();
+      for (int i = 0; i < found.size(); i++) {
+        if (found.get(i) != null) {
+          productList.add(found.get(i));
+        } else {
+          missing.add(distinctIds.get(i));
+        }
+      }
+      ProductResponse response = new ProductResponse();
+      response.setProductList(productList);
+      response.setTotal(productList.size());
+      response.setMissing(missing);
+      return ResponseEntity.ok(response);
+    });
+  }
+
+  @GetMapping("/product/search")
+  public Mono<ResponseEntity<ProductResponse>> searchProducts(@RequestParam("q") String query,
+                                                              @RequestParam(value = "limit", required = false) Integer limit) {
+    if (limit != null && limit <= 0) {
+      return Mono.just(ResponseEntity.badRequest().build());
+    }
+    return productService.searchProducts(query, limit != null ? Math.min(limit, MAX_PAGE_SIZE) : DEFAULT_SEARCH_SIZE).map(productList -> {
+      ProductResponse response = new ProductResponse();
+      response.setProductList(productList);
+      response.setTotal(productList.size());
+      return ResponseEntity.ok(response);
+    });
+  }
+
+  @GetMapping("/product/suggest")
+  public Mono<ResponseEntity<List<String>>> suggestProductNames(@RequestParam("prefix") String prefix,
+                                                                @RequestParam(value = "limit", required = false) Integer limit) {
+    if (limit != null && limit <= 0) {
+      return Mono.just(ResponseEntity.badRequest().build());
+    }
+    return productService.suggestProductNames(prefix, limit != null ? Math.min(limit, MAX_PAGE_SIZE) : DEFAULT_SEARCH_SIZE)
+        .map(ResponseEntity::ok);
+  }
+
+  @GetMapping("/product/_cache")
+  public ProductCacheStats getCacheStats() {
+    return productService.getCacheStats();
+  }
+
+  @PostMapping("/product/_bulk")
+  public Mono<ResponseEntity<ProductBulkResponse>> bulkProducts(@RequestBody List<ProductBulkOperation> operations) {
+    if (operations.size() > MAX_BULK_SIZE) {
+      return Mono.just(ResponseEntity.badRequest().build());
+    }
+    return productService.batch(service -> {
+      List<ProductBulkResult> resultList = new ArrayList<>(operations.size());
+      for (ProductBulkOperation operation : operations) {
+        resultList.add(applyBulkOperation(service, operation));
+      }
+      ProductBulkResponse response = new ProductBulkResponse();
+      response.setResultList(resultList);
+      response.setErrors((int) resultList.stream().filter(result -> result.getStatus() >= 400).count());
+      return ResponseEntity.ok(response);
+    });
+  }
+
+  private static ProductBulkResult applyBulkOperation(ProductService service, ProductBulkOperation operation) {
+    if (operation == null) {
+      return new ProductBulkResult(null, HttpStatus.BAD_REQUEST.value(), null, "operation is required");
+    }
+    String op = operation.getOp();
+    if ("create".equals(op)) {
+      try {
+        Product product = service.createProduct(operation.getName(), operation.getPrice());
+        return new ProductBulkResult(op, HttpStatus.CREATED.value(), product, null);
+      } catch (IllegalArgumentException e) {
+        return new ProductBulkResult(op, HttpStatus.BAD_REQUEST.value(), null, e.getMessage());
+      }
+    }
+    if ("update".equals(op)) {
+      if (operation.getFields() == null) {
+        return new ProductBulkResult(op, HttpStatus.BAD_REQUEST.value(), null, "fields is required");
+      }
+      try {
+        Product product = service.updateProduct(operation.getId(), operation.getFields());
+        if (product == null) {
+          return new ProductBulkResult(op, HttpStatus.NOT_FOUND.value(), null, "Product not found: " + operation.getId());
+        }
+        return new ProductBulkResult(op, HttpStatus.OK.value(), product, null);
+      } catch (IllegalArgumentException e) {
+        return new ProductBulkResult(op, HttpStatus.BAD_REQUEST.value(), null, e.getMessage());
+      }
+    }
+    if ("delete".equals(op)) {
+      Product product = service.deleteProduct(operation.getId(), null);
+      if (product == null) {
+        return new ProductBulkResult(op, HttpStatus.NOT_FOUND.value(), null, "Product not found: " + operation.getId());
+      }
+      return new ProductBulkResult(op, HttpStatus.OK.value(), product, null);
+    }
+    return new ProductBulkResult(op, HttpStatus.BAD_REQUEST.value(), null, "Unknown op: " + op);
+  }
+
+  @GetMapping("/product")
+  public Mono<ResponseEntity<ProductResponse>> getAllProducts(@RequestParam(value = "limit", required = false) Integer limit,
+                                                              @RequestParam(value = "after", required = false) String after,
+                                                              @RequestParam(value = "minPrice", required = false) Integer minPrice,
+                                                              @RequestParam(value = "maxPrice", required = false) Integer maxPrice,
+                                                              @RequestParam(value = "sort", required = false) String sort,
+                                                              ServerWebExchange exchange) {
+    boolean byPrice = minPrice != null || maxPrice != null || "price".equals(sort);
+    if (sort != null && !sort.equals(byPrice ? "price" : "id")) {
+      return Mono.just(ResponseEntity.badRequest().build());
+    }
+    if (limit != null && limit <= 0) {
+      return Mono.just(ResponseEntity.badRequest().build());
+    }
+    ProductCursor cursor = null;
+    if (after != null) {
+      try {
+        cursor = ProductCursor.decode(after);
+      } catch (IllegalArgumentException e) {
+        return Mono.just(ResponseEntity.badRequest().build());
+      }
+      if ((cursor.getPrice() != null) != byPrice) {
+        return Mono.just(ResponseEntity.badRequest().build());
+      }
+    }
+    // read the tag before the products, so a concurrent write can only make the tag older than the body
+    if (exchange.checkNotModified(catalogTag())) {
+      return Mono.empty();
+    }
+    if (!byPrice && limit == null && cursor == null) {
+      return productService.getProductList().map(productList -> {
+        ProductResponse response = new ProductResponse();
+        response.setProductList(productList);
+        response.setTotal(productList.size());
+        return ResponseEntity.ok(response);
+      });
+    }
+    int pageSize = limit != null ? Math.min(limit, MAX_PAGE_SIZE) : MAX_PAGE_SIZE;
+    // fetch one extra product to tell whether another page follows
+    Mono<List<Product>> page;
+    if (byPrice) {
+      page = productService.getProductListByPrice(
+          minPrice != null ? minPrice : Integer.MIN_VALUE,
+          maxPrice != null ? maxPrice : Integer.MAX_VALUE,
+          cursor != null ? cursor.getPrice() : null,
+          cursor != null ? cursor.getId() : 0,
+          pageSize + 1);
+    } else {
+      page = productService.getProductList(cursor != null ? cursor.getId() : 0, pageSize + 1);
+    }
+    return page.zipWith(productService.getProductCount(), (productList, total) -> {
+      ProductResponse response = new ProductResponse();
+      if (productList.size() > pageSize) {
+        productList = productList.subList(0, pageSize);
+        Product last = productList.get(pageSize - 1);
+        response.setNext(byPrice ? ProductCursor.encode(last.getPrice(), last.getId()) : ProductCursor.encode(last.getId()));
+      }
+      response.setProductList(productList);
+      response.setTotal(total);
+      return ResponseEntity.ok(response);
+    });
+  }
+
+  /**
+   * Streams the catalog as one JSON product per line. WebFlux requests products as the connection
+   * drains, so a slow client slows the reads instead of piling up serialized products.
+   */
+  @GetMapping(value = "/product", produces = NDJSON)
+  public Flux<Product> streamAllProducts() {
+    return productService.getProducts();
+  }
+
+  @GetMapping(value = "/product", params = "stream=true", produces = NDJSON)
+  public Flux<Product> streamAllProductsByParam() {
+    return productService.getProducts();
+  }
+
+  /**
+   * Answers calls the product scheduler has no room to queue.
+   */
+  @ExceptionHandler(RejectedExecutionException.class)
+  public ResponseEntity<Void> serviceUnavailable() {
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS).build();
+  }
+
+  private String catalogTag() {
+    return "\"" + productService.getEpoch() + "-c" + productService.getCatalogVersion() + "\"";
+  }
+}
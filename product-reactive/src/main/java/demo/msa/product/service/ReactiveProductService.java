@@ -0,0 +1,134 @@
+package demo.msa.product.service;
+
+import demo.msa.product.model.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Non-blocking facade of {@link ProductService}. Every call that may go to the repository runs on
+ * the {@code productScheduler} when subscribed to, so a repository that blocks never holds an
+ * event loop thread; cached products are returned on the subscribing thread. A call that returns
+ * null completes empty.
+ */
+@Service
+public class ReactiveProductService {
+
+  private static final int STREAM_PAGE_SIZE = 1000;
+
+  @Autowired
+  private ProductService productService;
+
+  @Autowired
+  @Qualifier("productScheduler")
+  private Scheduler productScheduler;
+
+  public Mono<Product> getProductById(long id) {
+    return Mono.defer(() -> {
+      Product cached = productService.getCachedProductById(id);
+      return cached != null ? Mono.just(cached) : call(() -> productService.getProductById(id));
+    });
+  }
+
+  /**
+   * Returns the products with the given ids in the same order, with null for ids that are not
+   * found.
+   */
+  public Mono<List<Product>> getProductsByIds(List<Long> ids) {
+    return call(() -> productService.getProductsByIds(ids));
+  }
+
+  public Mono<Product> createProduct(String name, int price) {
+    return call(() -> productService.createProduct(name, price));
+  }
+
+  /**
+   * Completes empty if there is no such product, and with the errors of
+   * {@link ProductService#updateProduct(long, Map, Long)}.
+   */
+  public Mono<Product> updateProduct(long id, Map<String, Object> fieldMap, Long expectedVersion) {
+    return call(() -> productService.updateProduct(id, fieldMap, expectedVersion));
+  }
+
+  public Mono<Product> deleteProduct(long id, Long expectedVersion) {
+    return call(() -> productService.deleteProduct(id, expectedVersion));
+  }
+
+  /**
+   * Applies {@code writes} to the blocking service off the event loop, as one repository batch,
+   * and returns what it returns.
+   */
+  public <T> Mono<T> batch(Function<ProductService, T> writes) {
+    return call(() -> {
+      AtomicReference<T> result = new AtomicReference<>();
+      productService.batch(() -> result.set(writes.apply(productService)));
+      return result.get();
+    });
+  }
+
+  public Mono<List<Product>> getProductList() {
+    return call(productService::getProductList);
+  }
+
+  public Mono<List<Product>> getProductList(long afterId, int limit) {
+    return call(() -> productService.getProductList(afterId, limit));
+  }
+
+  public Mono<List<Product>> getProductListByPrice(int minPrice, int maxPrice, Integer afterPrice, long afterId, int limit) {
+    return call(() -> productService.getProductListByPrice(minPrice, maxPrice, afterPrice, afterId, limit));
+  }
+
+  /**
+   * Streams the whole catalog in id order. Pages are read from the repository only as the
+   * subscriber requests products, at most one page ahead of it, so a slow consumer holds one page
+   * in memory rather than the catalog.
+   */
+  public Flux<Product> getProducts() {
+    return Flux.<List<Product>, Long>generate(() -> 0L, (afterId, sink) -> {
+      List<Product> productList = productService.getProductList(afterId, STREAM_PAGE_SIZE);
+      if (productList.isEmpty()) {
+        sink.complete();
+        return afterId;
+      }
+      sink.next(productList);
+      return productList.get(productList.size() - 1).getId();
+    }).subscribeOn(productScheduler).flatMapIterable(productList -> productList, 1);
+  }
+
+  public Mono<List<Product>> searchProducts(String query, int limit) {
+    return call(() -> productService.searchProducts(query, limit));
+  }
+
+  public Mono<List<String>> suggestProductNames(String prefix, int limit) {
+    return call(() -> productService.suggestProductNames(prefix, limit));
+  }
+
+  public Mono<Integer> getProductCount() {
+    return call(productService::getProductCount);
+  }
+
+  public ProductCacheStats getCacheStats() {
+    return productService.getCacheStats();
+  }
+
+  public long getCatalogVersion() {
+    return productService.getCatalogVersion();
+  }
+
+  public long getEpoch() {
+    return productService.getEpoch();
+  }
+
+  private <T> Mono<T> call(Callable<T> call) {
+    return Mono.fromCallable(call).subscribeOn(productScheduler);
+  }
+}
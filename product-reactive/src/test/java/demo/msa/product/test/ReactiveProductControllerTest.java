@@ -0,0 +1,236 @@
+package demo.msa.product.test;
+
+import demo.msa.product.model.Product;
+import demo.msa.product.request.ProductRequest;
+import demo.msa.product.response.ProductResponse;
+import org.assertj.core.api.Assertions;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+import org.skyscreamer.jsonassert.JSONAssert;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.RequestEntity;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Covers what the WebFlux controller does on its own: mapping service errors onto responses,
+ * streaming, conditional requests and the bulk batch. The request and response shapes it shares
+ * with the Spring MVC controller are tested in product-springboot-test.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class ReactiveProductControllerTest {
+
+  @Autowired
+  private TestRestTemplate restTemplate;
+
+  @Test
+  public void test1_getProductById() throws Exception {
+    Product product = restTemplate.getForObject("/product/1", Product.class);
+    Assertions.assertThat(product.getId()).isEqualTo(1);
+    Assertions.assertThat(product.getName()).isEqualTo("MacBook");
+    Assertions.assertThat(product.getPrice()).isEqualTo(10000);
+  }
+
+
+
+
+  @Test
+  public void test2_createProduct() throws Exception {
+    ProductRequest request = new ProductRequest();
+    request.setName("iMac");
+    request.setPrice(8000);
+
+    String expected = "{\"id\":4,\"name\":\"iMac\",\"price\":8000}";
+    String actual = restTemplate.postForObject("/product", request, String.class);
+    JSONAssert.assertEquals(expected, actual, false);
+  }
+
+
+  @Test
+  public void test3_updateProduct() throws Exception {
+    Map<String, Object> fieldMap = new HashMap<>();
+    fieldMap.put("price", 1);
+    fieldMap.put("id", 5);
+    RequestEntity<Map<String, Object>> requestEntity = new RequestEntity<>(fieldMap, HttpMethod.PUT, new URI("/product/4"));
+    HttpStatus status = restTemplate.exchange(requestEntity, String.class).getStatusCode();
+    Assertions.assertThat(status).isEqualTo(HttpStatus.BAD_REQUEST);
+
+    fieldMap.clear();
+    fieldMap.put("price", "cheap");
+    requestEntity = new RequestEntity<>(fieldMap, HttpMethod.PUT, new URI("/product/4"));
+    status = restTemplate.exchange(requestEntity, String.class).getStatusCode();
+    Assertions.assertThat(status).isEqualTo(HttpStatus.BAD_REQUEST);
+
+    Product product = restTemplate.getForObject("/product/4", Product.class);
+    Assertions.assertThat(product.getPrice()).isEqualTo(8000);
+  }
+
+  @Test
+  public void test4_deleteProductById() throws Exception {
+    String expected = "{\"id\":4,\"name\":\"iMac\",\"price\":8000}";
+    String actual = restTemplate.exchange("/product/4", HttpMethod.DELETE, null, String.class).getBody();
+    JSONAssert.assertEquals(expected, actual, false);
+  }
+
+  @Test
+  public void test5_getProductList() throws Exception {
+    String expected = "{\"items\":[{\"id\":1,\"name\":\"MacBook\",\"price\":10000},{\"id\":2,\"name\":\"MacBook Air\",\"price\":7000},{\"id\":3,\"name\":\"MacBook Pro\",\"price\":12000}],\"total\":3}";
+    String actual = restTemplate.getForObject("/product", String.class);
+    JSONAssert.assertEquals(expected, actual, false);
+  }
+
+
+  @Test
+  public void test6_getProductPage() throws Exception {
+    ProductResponse page1 = restTemplate.getForObject("/product?limit=2", ProductResponse.class);
+    Assertions.assertThat(page1.getProductList()).extracting("id").containsExactly(1L, 2L);
+    Assertions.assertThat(page1.getTotal()).isEqualTo(3);
+    Assertions.assertThat(page1.getNext()).isNotNull();
+
+    ProductResponse page2 = restTemplate.getForObject("/product?limit=2&after=" + page1.getNext(), ProductResponse.class);
+    Assertions.assertThat(page2.getProductList()).extracting("id").containsExactly(3L);
+    Assertions.assertThat(page2.getTotal()).isEqualTo(3);
+    Assertions.assertThat(page2.getNext()).isNull();
+  }
+
+
+  @Test
+  public void test7_streamProductList() throws Exception {
+    RequestEntity<Void> requestEntity = RequestEntity.get(new URI("/product"))
+        .accept(MediaType.valueOf("application/x-ndjson"))
+        .build();
+    ResponseEntity<String> response = restTemplate.exchange(requestEntity, String.class);
+    Assertions.assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE)).startsWith("application/x-ndjson");
+    String[] lines = response.getBody().split("\n");
+    Assertions.assertThat(lines).hasSize(3);
+    JSONAssert.assertEquals("{\"id\":1,\"name\":\"MacBook\",\"price\":10000}", lines[0], false);
+    JSONAssert.assertEquals("{\"id\":3,\"name\":\"MacBook Pro\",\"price\":12000}", lines[2], false);
+  }
+
+  @Test
+  public void test7_streamProductList_2() throws Exception {
+    String actual = restTemplate.getForObject("/product?stream=true", String.class);
+    Assertions.assertThat(actual.split("\n")).hasSize(3);
+  }
+
+
+
+
+
+  @Test
+  public void testA_bulkProducts() throws Exception {
+    String request = "["
+        + "{\"op\":\"create\",\"name\":\"iPhone\",\"price\":5000},"
+        + "{\"op\":\"update\",\"id\":2,\"fields\":{\"price\":6500}},"
+        + "{\"op\":\"update\",\"id\":2,\"fields\":{\"id\":7}},"
+        + "{\"op\":\"delete\",\"id\":999},"
+        + "{\"op\":\"rename\"}"
+        + "]";
+    RequestEntity<String> requestEntity = RequestEntity.post(new URI("/product/_bulk"))
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(request);
+    String actual = restTemplate.exchange(requestEntity, String.class).getBody();
+    String expected = "{\"items\":["
+        + "{\"op\":\"create\",\"status\":201,\"product\":{\"id\":5,\"name\":\"iPhone\",\"price\":5000}},"
+        + "{\"op\":\"update\",\"status\":200,\"product\":{\"id\":2,\"price\":6500}},"
+        + "{\"op\":\"update\",\"status\":400},"
+        + "{\"op\":\"delete\",\"status\":404},"
+        + "{\"op\":\"rename\",\"status\":400}"
+        + "],\"errors\":3}";
+    JSONAssert.assertEquals(expected, actual, false);
+
+    Product product = restTemplate.getForObject("/product/5", Product.class);
+    Assertions.assertThat(product.getName()).isEqualTo("iPhone");
+  }
+
+  @Test
+  public void testA_bulkProducts_2() throws Exception {
+    String request = "[null,{\"op\":\"delete\",\"id\":999}]";
+    RequestEntity<String> requestEntity = RequestEntity.post(new URI("/product/_bulk"))
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(request);
+    ResponseEntity<String> response = restTemplate.exchange(requestEntity, String.class);
+    Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    String expected = "{\"items\":["
+        + "{\"status\":400,\"error\":\"operation is required\"},"
+        + "{\"op\":\"delete\",\"status\":404}"
+        + "],\"errors\":2}";
+    JSONAssert.assertEquals(expected, response.getBody(), false);
+  }
+
+
+  @Test
+  public void testC_getProductById_notModified() throws Exception {
+    ResponseEntity<String> response = restTemplate.getForEntity("/product/1", String.class);
+    String etag = response.getHeaders().getETag();
+    Assertions.assertThat(etag).isNotNull();
+
+    RequestEntity<Void> requestEntity = RequestEntity.get(new URI("/product/1")).ifNoneMatch(etag).build();
+    response = restTemplate.exchange(requestEntity, String.class);
+    Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+    Assertions.assertThat(response.getBody()).isNull();
+
+    Map<String, Object> fieldMap = new HashMap<>();
+    fieldMap.put("price", 10000);
+    restTemplate.exchange(new RequestEntity<>(fieldMap, HttpMethod.PUT, new URI("/product/1")), String.class);
+    response = restTemplate.exchange(requestEntity, String.class);
+    Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    Assertions.assertThat(response.getHeaders().getETag()).isNotEqualTo(etag);
+  }
+
+  @Test
+  public void testC_getProductList_notModified() throws Exception {
+    ResponseEntity<String> response = restTemplate.getForEntity("/product?limit=2", String.class);
+    String etag = response.getHeaders().getETag();
+    Assertions.assertThat(etag).isNotNull();
+
+    RequestEntity<Void> requestEntity = RequestEntity.get(new URI("/product?limit=2")).ifNoneMatch(etag).build();
+    response = restTemplate.exchange(requestEntity, String.class);
+    Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+
+    restTemplate.exchange("/product/5", HttpMethod.DELETE, null, String.class);
+    response = restTemplate.exchange(requestEntity, String.class);
+    Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+  }
+
+  @Test
+  public void testD_updateProduct_ifMatch() throws Exception {
+    String etag = restTemplate.getForEntity("/product/2", String.class).getHeaders().getETag();
+    Map<String, Object> fieldMap = new HashMap<>();
+    fieldMap.put("price", 7500);
+    RequestEntity<Map<String, Object>> requestEntity = RequestEntity.put(new URI("/product/2")).header(HttpHeaders.IF_MATCH, etag).body(fieldMap);
+    ResponseEntity<Product> response = restTemplate.exchange(requestEntity, Product.class);
+    Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    Assertions.assertThat(response.getBody().getPrice()).isEqualTo(7500);
+    String newEtag = response.getHeaders().getETag();
+    Assertions.assertThat(newEtag).isNotEqualTo(etag);
+
+    fieldMap.put("price", 1);
+    response = restTemplate.exchange(RequestEntity.put(new URI("/product/2")).header(HttpHeaders.IF_MATCH, etag).body(fieldMap), Product.class);
+    Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    response = restTemplate.exchange(RequestEntity.delete(new URI("/product/2")).header(HttpHeaders.IF_MATCH, etag).build(), Product.class);
+    Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    response = restTemplate.exchange(RequestEntity.put(new URI("/product/2")).header(HttpHeaders.IF_MATCH, "\"bogus\"").body(fieldMap), Product.class);
+    Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    Assertions.assertThat(restTemplate.getForObject("/product/2", Product.class).getPrice()).isEqualTo(7500);
+
+    fieldMap.put("price", 7000);
+    response = restTemplate.exchange(RequestEntity.put(new URI("/product/2")).header(HttpHeaders.IF_MATCH, newEtag).body(fieldMap), Product.class);
+    Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+  }
+
+}
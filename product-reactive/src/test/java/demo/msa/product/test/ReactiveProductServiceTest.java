@@ -0,0 +1,62 @@
+package demo.msa.product.test;
+
+import demo.msa.product.model.Product;
+import demo.msa.product.service.ReactiveProductService;
+import org.assertj.core.api.Assertions;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class ReactiveProductServiceTest {
+
+  @Autowired
+  private ReactiveProductService productService;
+
+  @Test
+  public void test1_runsCallsOnTheProductScheduler() throws Exception {
+    String thread = productService.createProduct("iMac", 8000).map(product -> Thread.currentThread().getName()).block();
+    Assertions.assertThat(thread).startsWith("product-service");
+  }
+
+  @Test
+  public void test2_answersCachedProductsOnTheCallingThread() throws Exception {
+    productService.getProductById(1).block();
+    String thread = productService.getProductById(1).map(product -> Thread.currentThread().getName()).block();
+    Assertions.assertThat(thread).isEqualTo(Thread.currentThread().getName());
+  }
+
+  @Test
+  public void test3_streamsProductsAsRequested() throws Exception {
+    int created = productService.batch(service -> {
+      for (int i = 0; i < 2500; i++) {
+        service.createProduct("Product " + i, i);
+      }
+      return 2500;
+    }).block();
+    int total = productService.getProductCount().block();
+    Assertions.assertThat(total).isGreaterThan(created);
+
+    StepVerifier.create(productService.getProducts(), 0)
+        .expectSubscription()
+        .expectNoEvent(Duration.ofMillis(100))
+        .thenRequest(1)
+        .expectNextMatches(product -> product.getId() == 1)
+        .thenRequest(Long.MAX_VALUE)
+        .expectNextCount(total - 1)
+        .verifyComplete();
+
+    List<Product> productList = productService.getProducts().collectList().block();
+    Assertions.assertThat(productList).hasSize(total).isSortedAccordingTo((a, b) -> Long.compare(a.getId(), b.getId()));
+  }
+}
@@ -0,0 +1,34 @@
+package demo.msa.product.conf;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+@ConditionalOnProperty(name = "product.async.enabled", havingValue = "true")
+public class AsyncConf {
+
+  @Value("${product.async.threads:16}")
+  private int threads;
+
+  @Value("${product.async.queue-capacity:1000}")
+  private int queueCapacity;
+
+  /**
+   * Runs the product service calls of the async controller on a fixed number of threads behind a
+   * bounded queue, and rejects calls when the queue is full rather than queueing without end.
+   */
+  @Bean(destroyMethod = "shutdown")
+  public ExecutorService productExecutor() {
+    return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("product-service-"),
+        new ThreadPoolExecutor.AbortPolicy());
+  }
+}
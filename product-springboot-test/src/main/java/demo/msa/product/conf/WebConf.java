@@ -0,0 +1,91 @@
+package demo.msa.product.conf;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import demo.msa.product.converter.JacksonBinaryHttpMessageConverter;
+import demo.msa.product.converter.ProductMediaTypes;
+import demo.msa.product.converter.ProductProtobufHttpMessageConverter;
+import demo.msa.product.converter.VaryByAcceptInterceptor;
+import demo.msa.product.json.ProductJsonCache;
+import demo.msa.product.json.ProductListView;
+import demo.msa.product.service.ProductService;
+import demo.msa.product.tracing.TracingInterceptor;
+import demo.msa.product.tracing.TracingJackson2HttpMessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+import java.util.List;
+
+@Configuration
+public class WebConf extends WebMvcConfigurerAdapter {
+
+  @Value("${product.json-cache.maximum-size:10000}")
+  private long jsonCacheMaximumSize;
+
+  @Autowired
+  private Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+  /**
+   * Replaces the JSON converter Boot would configure with the same mapper.
+   */
+  @Bean
+  public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper) {
+    return new TracingJackson2HttpMessageConverter(objectMapper);
+  }
+
+  /**
+   * Serializes single products with the converter's mapper, so the cached bytes are what the
+   * converter would write.
+   */
+  @Bean
+  public ProductJsonCache productJsonCache(ObjectMapper objectMapper) {
+    return new ProductJsonCache(objectMapper, jsonCacheMaximumSize);
+  }
+
+  @Bean
+  public ProductListView productListView(ProductService productService, ObjectMapper objectMapper) {
+    return new ProductListView(productService, objectMapper);
+  }
+
+  /**
+   * Adds the binary formats after the JSON converter, so a client that accepts anything still gets
+   * JSON. Their mappers take the same settings as the JSON one. Spring MVC 5 registers Smile and
+   * CBOR converters itself, which are kept.
+   */
+  @Override
+  public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+    addIfAbsent(converters, ProductMediaTypes.APPLICATION_SMILE, new SmileFactory());
+    addIfAbsent(converters, ProductMediaTypes.APPLICATION_CBOR, new CBORFactory());
+    ProtobufMapper protobufMapper = new ProtobufMapper();
+    objectMapperBuilder.configure(protobufMapper);
+    converters.add(new ProductProtobufHttpMessageConverter(protobufMapper));
+  }
+
+  private void addIfAbsent(List<HttpMessageConverter<?>> converters, MediaType mediaType, JsonFactory factory) {
+    for (HttpMessageConverter<?> converter : converters) {
+      if (converter.getSupportedMediaTypes().contains(mediaType)) {
+        return;
+      }
+    }
+    ObjectMapper objectMapper = new ObjectMapper(factory);
+    objectMapperBuilder.configure(objectMapper);
+    converters.add(new JacksonBinaryHttpMessageConverter(objectMapper, mediaType));
+  }
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(new TracingInterceptor());
+    registry.addInterceptor(new VaryByAcceptInterceptor());
+  }
+}
@@ -0,0 +1,121 @@
+package demo.msa.product.controller;
+
+import demo.msa.product.converter.ProductMediaTypes;
+import demo.msa.product.json.ProductJsonCache;
+import demo.msa.product.model.Product;
+import demo.msa.product.request.ProductRequest;
+import demo.msa.product.service.ProductService;
+import demo.msa.product.service.ProductVersionConflictException;
+import demo.msa.product.web.ProductTags;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.Map;
+
+/**
+ * Reads and writes single products like {@link ProductCrudController}, but hands the service calls
+ * to the bounded {@code productExecutor} and releases the request thread until they finish, so
+ * requests waiting on the repository do not hold the container's threads. Cached products are
+ * answered right away, without going async. {@link ProductCalls} runs the calls and answers
+ * timeouts and a full executor queue with 503; the list, search and bulk endpoints of
+ * {@link ProductController} go through it too.
+ */
+@RestController
+@ConditionalOnProperty(name = "product.async.enabled", havingValue = "true")
+public class AsyncProductCrudController {
+
+  @Autowired
+  private ProductService productService;
+
+  @Autowired
+  private ProductJsonCache productJsonCache;
+
+  @Autowired
+  private ProductCalls productCalls;
+
+  /**
+   * Answers a cached product with a plain {@link ResponseEntity}, which Spring MVC writes on the
+   * request thread without the cost of an async dispatch, and any other with a {@link DeferredResult}.
+   */
+  @GetMapping("/product/{id}")
+  public Object getProductById(@PathVariable("id") long id, @RequestHeader(value = "Accept", required = false) String accept) {
+    Product cached = productService.getCachedProductById(id);
+    if (cached != null) {
+      return toResponse(cached, accept);
+    }
+    return productCalls.submit(() -> toResponse(productService.getProductById(id), accept));
+  }
+
+  @PostMapping("/product")
+  public DeferredResult<ResponseEntity<Product>> createProduct(@RequestBody ProductRequest productRequest) {
+    String name = productRequest.getName();
+    int price = productRequest.getPrice();
+    return productCalls.submit(() -> {
+      try {
+        return ResponseEntity.ok(productService.createProduct(name, price));
+      } catch (IllegalArgumentException e) {
+        return ResponseEntity.badRequest().build();
+      }
+    });
+  }
+
+  @PutMapping("/product/{id}")
+  public DeferredResult<ResponseEntity<Product>> updateProduct(@PathVariable("id") long id, @RequestBody Map<String, Object> fieldMap,
+                                                               @RequestHeader(value = "If-Match", required = false) String ifMatch,
+                                                               @RequestHeader(value = "Accept", required = false) String accept) {
+    long epoch = productService.getEpoch();
+    Long expectedVersion = ProductTags.expectedVersion(epoch, ifMatch);
+    return productCalls.submit(() -> {
+      try {
+        Product product = productService.updateProduct(id, fieldMap, expectedVersion);
+        if (product == null) {
+          return ResponseEntity.ok().build();
+        }
+        productJsonCache.invalidate(id);
+        return ResponseEntity.ok().eTag(ProductTags.productTag(epoch, product, ProductMediaTypes.tagSuffix(accept))).body(product);
+      } catch (ProductVersionConflictException e) {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+      } catch (IllegalArgumentException e) {
+        return ResponseEntity.badRequest().build();
+      }
+    });
+  }
+
+  @DeleteMapping("/product/{id}")
+  public DeferredResult<ResponseEntity<Product>> deleteProductById(@PathVariable("id") long id,
+                                                                   @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+    Long expectedVersion = ProductTags.expectedVersion(productService.getEpoch(), ifMatch);
+    return productCalls.submit(() -> {
+      try {
+        Product product = productService.deleteProduct(id, expectedVersion);
+        if (product != null) {
+          productJsonCache.invalidate(id);
+        }
+        return ResponseEntity.ok(product);
+      } catch (ProductVersionConflictException e) {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+      }
+    });
+  }
+
+  /**
+   * Answers with the product's cached JSON bytes, or the product if the client prefers another
+   * format, and the tag of that format, which Spring MVC compares with If-None-Match to answer 304.
+   */
+  private ResponseEntity<?> toResponse(Product product, String accept) {
+    if (product == null) {
+      return ResponseEntity.ok().build();
+    }
+    String tag = ProductTags.productTag(productService.getEpoch(), product, ProductMediaTypes.tagSuffix(accept));
+    ResponseEntity.BodyBuilder builder = ResponseEntity.ok().eTag(tag);
+    if (!ProductMediaTypes.prefersJson(accept)) {
+      return builder.body(product);
+    }
+    return builder.contentType(MediaType.APPLICATION_JSON_UTF8).body(productJsonCache.get(product));
+  }
+}
@@ -0,0 +1,98 @@
+package demo.msa.product.controller;
+
+import demo.msa.product.metrics.LatencyHistogram;
+import demo.msa.product.metrics.RequestMetrics;
+import demo.msa.product.service.ProductCacheStats;
+import demo.msa.product.service.ProductService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+
+/**
+ * Exposes the request metrics, the catalog size, the cache counters and the process CPU time in
+ * the Prometheus text format. Request rates are the rates of the histogram counts, and CPU time
+ * per request is the rate of the CPU time over the request rate.
+ */
+@RestController
+public class MetricsController {
+
+  private static final String PROMETHEUS_TEXT = "text/plain; version=0.0.4; charset=utf-8";
+
+  private static final long[] BOUNDS = LatencyHistogram.getBounds();
+
+  private static final OperatingSystemMXBean OPERATING_SYSTEM = ManagementFactory.getOperatingSystemMXBean();
+
+  @Autowired
+  private RequestMetrics requestMetrics;
+
+  @Autowired
+  private ProductService productService;
+
+  @GetMapping(value = "/metrics", produces = PROMETHEUS_TEXT)
+  public void getMetrics(HttpServletResponse response) throws IOException {
+    response.setContentType(PROMETHEUS_TEXT);
+    PrintWriter out = response.getWriter();
+    out.print("# HELP http_server_request_duration_seconds Time to handle HTTP requests.\n");
+    out.print("# TYPE http_server_request_duration_seconds histogram\n");
+    requestMetrics.forEach((method, pattern, status, histogram) -> writeHistogram(out, method, pattern, status, histogram));
+    writeSample(out, "http_server_requests_in_flight", "gauge", "HTTP requests being handled.", requestMetrics.getInFlight());
+    writeSample(out, "product_catalog_products", "gauge", "Products in the catalog.", productService.getProductCount());
+    ProductCacheStats cacheStats = productService.getCacheStats();
+    writeSample(out, "product_cache_entries", "gauge", "Products in the cache.", cacheStats.getSize());
+    writeSample(out, "product_cache_hits_total", "counter", "Product lookups answered from the cache.", cacheStats.getHits());
+    writeSample(out, "product_cache_misses_total", "counter", "Product lookups loaded from the repository.", cacheStats.getMisses());
+    writeSample(out, "product_cache_evictions_total", "counter", "Products evicted from the cache.", cacheStats.getEvictions());
+    long cpuNanos = getProcessCpuNanos();
+    if (cpuNanos >= 0) {
+      writeSample(out, "process_cpu_seconds_total", "counter", "CPU time used by the process.", cpuNanos / 1e9);
+    }
+    out.flush();
+  }
+
+  /**
+   * Returns the CPU time of this process, or -1 on JVMs without the com.sun.management extension.
+   */
+  private static long getProcessCpuNanos() {
+    if (OPERATING_SYSTEM instanceof com.sun.management.OperatingSystemMXBean) {
+      return ((com.sun.management.OperatingSystemMXBean) OPERATING_SYSTEM).getProcessCpuTime();
+    }
+    return -1;
+  }
+
+  private static void writeHistogram(PrintWriter out, String method, String pattern, int status, LatencyHistogram histogram) {
+    String labels = "method=\"" + method + "\",uri=\"" + escape(pattern) + "\",status=\"" + status + "\"";
+    long[] counts = histogram.getBucketCounts();
+    long cumulative = 0;
+    for (int i = 0; i < counts.length; i++) {
+      cumulative += counts[i];
+      String le = i < BOUNDS.length ? Double.toString(BOUNDS[i] / 1e9) : "+Inf";
+      out.print("http_server_request_duration_seconds_bucket{" + labels + ",le=\"" + le + "\"} " + cumulative + "\n");
+    }
+    out.print("http_server_request_duration_seconds_sum{" + labels + "} " + histogram.getSumNanos() / 1e9 + "\n");
+    out.print("http_server_request_duration_seconds_count{" + labels + "} " + cumulative + "\n");
+  }
+
+  private static void writeSample(PrintWriter out, String name, String type, String help, long value) {
+    writeSample(out, name, type, help, Long.toString(value));
+  }
+
+  private static void writeSample(PrintWriter out, String name, String type, String help, double value) {
+    writeSample(out, name, type, help, Double.toString(value));
+  }
+
+  private static void writeSample(PrintWriter out, String name, String type, String help, String value) {
+    out.print("# HELP " + name + " " + help + "\n");
+    out.print("# TYPE " + name + " " + type + "\n");
+    out.print(name + " " + value + "\n");
+  }
+
+  private static String escape(String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+}
@@ -0,0 +1,73 @@
+package demo.msa.product.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Runs the product service calls of the endpoints: on the request thread by default, and with
+ * {@code product.async.enabled} on the bounded {@code productExecutor}, returning a
+ * {@link DeferredResult} so the request thread is released until the call finishes. The NDJSON
+ * streams, which write while they read, and the cache and trace stats, which are in memory, stay
+ * on the request thread.
+ *
+ * <p>A call that does not start and finish within {@code product.async.timeout-ms} is answered
+ * with 503 and cancelled if it has not started yet; one that started still completes. A full
+ * executor queue is answered with 503 and {@code Retry-After} at once.
+ */
+@Component
+public class ProductCalls {
+
+  private static final String RETRY_AFTER_SECONDS = "1";
+
+  // only defined in async mode
+  @Autowired(required = false)
+  @Qualifier("productExecutor")
+  private ExecutorService productExecutor;
+
+  @Value("${product.async.timeout-ms:5000}")
+  private long timeoutMillis;
+
+  /**
+   * Returns the response of the call, or in async mode a {@link DeferredResult} of it, which
+   * Spring MVC handles whatever the handler's declared return type.
+   */
+  public Object call(Supplier<?> call) {
+    return productExecutor != null ? submit(call) : call.get();
+  }
+
+  /**
+   * Runs the call on the {@code productExecutor}, which must be defined.
+   */
+  public <T> DeferredResult<T> submit(Supplier<T> call) {
+    DeferredResult<T> result = new DeferredResult<>(timeoutMillis, serviceUnavailable());
+    try {
+      Future<?> future = productExecutor.submit(() -> {
+        try {
+          result.setResult(call.get());
+        } catch (RuntimeException | Error e) {
+          result.setErrorResult(e);
+        }
+      });
+      result.onTimeout(() -> future.cancel(false));
+    } catch (RejectedExecutionException e) {
+      // an error result that is not an exception is answered like a result
+      result.setErrorResult(serviceUnavailable());
+    }
+    return result;
+  }
+
+  private static ResponseEntity<?> serviceUnavailable() {
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS).build();
+  }
+}
@@ -1,50 +1,360 @@
 package demo.msa.product.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import demo.msa.product.converter.ProductMediaTypes;
+import demo.msa.product.json.ProductListView;
 import demo.msa.product.model.Product;
-import demo.msa.product.request.ProductRequest;
+import demo.msa.product.request.ProductBulkOperation;
+import demo.msa.product.request.ProductIdsRequest;
+import demo.msa.product.response.ProductBulkResponse;
+import demo.msa.product.response.ProductBulkResult;
 import demo.msa.product.response.ProductResponse;
+import demo.msa.product.service.ProductCacheStats;
+import demo.msa.product.service.ProductCursor;
 import demo.msa.product.service.ProductService;
+import demo.msa.product.tracing.RequestTrace;
+import demo.msa.product.tracing.RequestTraces;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 
 @RestController
 public class ProductController {
 
+  private static final int MAX_PAGE_SIZE = 1000;
+
+  private static final int DEFAULT_SEARCH_SIZE = 10;
+
+  private static final int MAX_BULK_SIZE = 10000;
+
+  private static final int DEFAULT_TRACE_SIZE = 20;
+
+  private static final String NDJSON = "application/x-ndjson";
+
+  private static final String GZIP = "gzip";
+
+  // a strong tag names one encoding of the body, as it names one format
+  private static final String GZIP_TAG_SUFFIX = "-gzip";
+
   @Autowired
   private ProductService productService;
 
-  @GetMapping("/product/{id}")
-  public Product getProductById(@PathVariable("id") long id) {
-    return productService.getProductById(id);
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private RequestTraces requestTraces;
+
+  @Autowired
+  private ProductListView productListView;
+
+  @Autowired
+  private ProductCalls productCalls;
+
+  @GetMapping(value = "/product", params = "ids")
+  public Object getProductsByIds(@RequestParam("ids") List<Long> ids, WebRequest request) {
+    if (request.checkNotModified(catalogTag(ProductMediaTypes.tagSuffix(request.getHeader(HttpHeaders.ACCEPT))))) {
+      return null;
+    }
+    return multiGet(ids);
+  }
+
+  @PostMapping("/product/_mget")
+  public Object getProductsByIds(@RequestBody ProductIdsRequest request) {
+    if (request.getIds() == null) {
+      return ResponseEntity.badRequest().build();
+    }
+    return multiGet(request.getIds());
   }
 
-  @PostMapping("/product")
-  public Product createProduct(@RequestBody ProductRequest productRequest) {
-    String name = productRequest.getName();
-    int price = productRequest.getPrice();
-    return productService.createProduct(name, price);
+  private Object multiGet(List<Long> ids) {
+    List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+    if (distinctIds.size() > MAX_PAGE_SIZE || distinctIds.contains(null)) {
+      return ResponseEntity.badRequest().build();
+    }
+    return productCalls.call(() -> getExisting(distinctIds));
+  }
+
+  private ResponseEntity<ProductResponse> getExisting(List<Long> distinctIds) {
+    List<Product> found = productService.getProductsByIds(distinctIds);
+    List<Product> productList = new ArrayList<>(found.size());
+    List<Long> missing = new ArrayList<>();
+    for (int i = 0; i < found.size(); i++) {
+      if (found.get(i) != null) {
+        productList.add(found.get(i));
+      } else {
+        missing.add(distinctIds.get(i));
+      }
+    }
+    ProductResponse response = new ProductResponse();
+    response.setProductList(productList);
+    response.setTotal(productList.size());
+    response.setMissing(missing);
+    return ResponseEntity.ok(response);
   }
 
-  @PutMapping("/product/{id}")
-  public Product updateProduct(@PathVariable("id") long id, @RequestBody Map<String, Object> fieldMap) {
-    return productService.updateProduct(id, fieldMap);
+  @GetMapping("/product/search")
+  public Object searchProducts(@RequestParam("q") String query,
+                               @RequestParam(value = "limit", required = false) Integer limit) {
+    if (limit != null && limit <= 0) {
+      return ResponseEntity.badRequest().build();
+    }
+    return productCalls.call(() -> {
+      List<Product> productList = productService.searchProducts(query, limit != null ? Math.min(limit, MAX_PAGE_SIZE) : DEFAULT_SEARCH_SIZE);
+      ProductResponse response = new ProductResponse();
+      response.setProductList(productList);
+      response.setTotal(productList.size());
+      return ResponseEntity.ok(response);
+    });
   }
 
-  @DeleteMapping("/product/{id}")
-  public Product deleteProductById(@PathVariable("id") long id) {
-    Product product = productService.getProductById(id);
-    return productService.deleteProductById(id) ? product : null;
+  @GetMapping("/product/suggest")
+  public Object suggestProductNames(@RequestParam("prefix") String prefix,
+                                    @RequestParam(value = "limit", required = false) Integer limit) {
+    if (limit != null && limit <= 0) {
+      return ResponseEntity.badRequest().build();
+    }
+    return productCalls.call(() -> ResponseEntity.ok(
+        productService.suggestProductNames(prefix, limit != null ? Math.min(limit, MAX_PAGE_SIZE) : DEFAULT_SEARCH_SIZE)));
   }
 
+  @GetMapping("/product/_cache")
+  public ProductCacheStats getCacheStats() {
+    return productService.getCacheStats();
+  }
+
+  /**
+   * Lists the slowest of the recently traced requests, with the time of each phase.
+   */
+  @GetMapping("/product/_traces")
+  public ResponseEntity<List<RequestTrace>> getSlowestTraces(@RequestParam(value = "limit", required = false) Integer limit) {
+    if (limit != null && limit <= 0) {
+      return ResponseEntity.badRequest().build();
+    }
+    return ResponseEntity.ok(requestTraces.getSlowest(limit != null ? limit : DEFAULT_TRACE_SIZE));
+  }
+
+  @PostMapping("/product/_bulk")
+  public Object bulkProducts(@RequestBody List<ProductBulkOperation> operations) {
+    if (operations.size() > MAX_BULK_SIZE) {
+      return ResponseEntity.badRequest().build();
+    }
+    return productCalls.call(() -> {
+      List<ProductBulkResult> resultList = new ArrayList<>(operations.size());
+      productService.batch(() -> {
+        for (ProductBulkOperation operation : operations) {
+          resultList.add(applyBulkOperation(operation));
+        }
+      });
+      ProductBulkResponse response = new ProductBulkResponse();
+      response.setResultList(resultList);
+      response.setErrors((int) resultList.stream().filter(result -> result.getStatus() >= 400).count());
+      return ResponseEntity.ok(response);
+    });
+  }
+
+  private ProductBulkResult applyBulkOperation(ProductBulkOperation operation) {
+    if (operation == null) {
+      return new ProductBulkResult(null, HttpStatus.BAD_REQUEST.value(), null, "operation is required");
+    }
+    String op = operation.getOp();
+    if ("create".equals(op)) {
+      try {
+        Product product = productService.createProduct(operation.getName(), operation.getPrice());
+        return new ProductBulkResult(op, HttpStatus.CREATED.value(), product, null);
+      } catch (IllegalArgumentException e) {
+        return new ProductBulkResult(op, HttpStatus.BAD_REQUEST.value(), null, e.getMessage());
+      }
+    }
+    if ("update".equals(op)) {
+      if (operation.getFields() == null) {
+        return new ProductBulkResult(op, HttpStatus.BAD_REQUEST.value(), null, "fields is required");
+      }
+      try {
+        Product product = productService.updateProduct(operation.getId(), operation.getFields());
+        if (product == null) {
+          return new ProductBulkResult(op, HttpStatus.NOT_FOUND.value(), null, "Product not found: " + operation.getId());
+        }
+        return new ProductBulkResult(op, HttpStatus.OK.value(), product, null);
+      } catch (IllegalArgumentException e) {
+        return new ProductBulkResult(op, HttpStatus.BAD_REQUEST.value(), null, e.getMessage());
+      }
+    }
+    if ("delete".equals(op)) {
+      Product product = productService.deleteProduct(operation.getId(), null);
+      if (product == null) {
+        return new ProductBulkResult(op, HttpStatus.NOT_FOUND.value(), null, "Product not found: " + operation.getId());
+      }
+      return new ProductBulkResult(op, HttpStatus.OK.value(), product, null);
+    }
+    return new ProductBulkResult(op, HttpStatus.BAD_REQUEST.value(), null, "Unknown op: " + op);
+  }
+
+  /**
+   * Answers the whole catalog, without a limit, cursor or price filter, from {@link ProductListView},
+   * gzip-encoded if the client accepts it, unless the client prefers a format other than JSON; and
+   * any page by querying the service through {@link ProductCalls}.
+   */
   @GetMapping("/product")
-  public ProductResponse getAllProducts() {
-    List<Product> productList = productService.getProductList();
+  public Object getAllProducts(@RequestParam(value = "limit", required = false) Integer limit,
+                               @RequestParam(value = "after", required = false) String after,
+                               @RequestParam(value = "minPrice", required = false) Integer minPrice,
+                               @RequestParam(value = "maxPrice", required = false) Integer maxPrice,
+                               @RequestParam(value = "sort", required = false) String sort,
+                               WebRequest request) {
+    boolean byPrice = minPrice != null || maxPrice != null || "price".equals(sort);
+    if (sort != null && !sort.equals(byPrice ? "price" : "id")) {
+      return ResponseEntity.badRequest().build();
+    }
+    if (limit != null && limit <= 0) {
+      return ResponseEntity.badRequest().build();
+    }
+    ProductCursor cursor = null;
+    if (after != null) {
+      try {
+        cursor = ProductCursor.decode(after);
+      } catch (IllegalArgumentException e) {
+        return ResponseEntity.badRequest().build();
+      }
+      if ((cursor.getPrice() != null) != byPrice) {
+        return ResponseEntity.badRequest().build();
+      }
+    }
+    String accept = request.getHeader(HttpHeaders.ACCEPT);
+    boolean wholeCatalog = !byPrice && limit == null && cursor == null;
+    boolean fromView = wholeCatalog && ProductMediaTypes.prefersJson(accept);
+    boolean gzip = fromView && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+    // read the tag before the products, so a concurrent write can only make the tag older than the body
+    if (request.checkNotModified(catalogTag(gzip ? GZIP_TAG_SUFFIX : ProductMediaTypes.tagSuffix(accept)))) {
+      return null;
+    }
+    if (fromView) {
+      ProductListView.Snapshot view = productListView.get();
+      ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+          .contentType(MediaType.APPLICATION_JSON_UTF8)
+          .varyBy(HttpHeaders.ACCEPT_ENCODING);
+      if (gzip) {
+        return builder.header(HttpHeaders.CONTENT_ENCODING, GZIP).body(view.getGzip());
+      }
+      return builder.body(view.getJson());
+    }
+    ProductCursor pageCursor = cursor;
+    return productCalls.call(() -> getProducts(limit, pageCursor, minPrice, maxPrice, byPrice));
+  }
+
+  private ResponseEntity<ProductResponse> getProducts(Integer limit, ProductCursor cursor, Integer minPrice, Integer maxPrice,
+                                                      boolean byPrice) {
     ProductResponse response = new ProductResponse();
+    if (!byPrice && limit == null && cursor == null) {
+      List<Product> productList = productService.getProductList();
+      response.setProductList(productList);
+      response.setTotal(productList.size());
+      return ResponseEntity.ok(response);
+    }
+    int pageSize = limit != null ? Math.min(limit, MAX_PAGE_SIZE) : MAX_PAGE_SIZE;
+    // fetch one extra product to tell whether another page follows
+    List<Product> productList;
+    if (byPrice) {
+      productList = productService.getProductListByPrice(
+          minPrice != null ? minPrice : Integer.MIN_VALUE,
+          maxPrice != null ? maxPrice : Integer.MAX_VALUE,
+          cursor != null ? cursor.getPrice() : null,
+          cursor != null ? cursor.getId() : 0,
+          pageSize + 1);
+    } else {
+      productList = productService.getProductList(cursor != null ? cursor.getId() : 0, pageSize + 1);
+    }
+    if (productList.size() > pageSize) {
+      productList = productList.subList(0, pageSize);
+      Product last = productList.get(pageSize - 1);
+      response.setNext(byPrice ? ProductCursor.encode(last.getPrice(), last.getId()) : ProductCursor.encode(last.getId()));
+    }
     response.setProductList(productList);
-    response.setTotal(productList.size());
-    return response;
+    response.setTotal(productService.getProductCount());
+    return ResponseEntity.ok(response);
+  }
+
+  @GetMapping(value = "/product", produces = NDJSON)
+  public void streamAllProducts(HttpServletResponse response) throws IOException {
+    writeProducts(response);
+  }
+
+  @GetMapping(value = "/product", params = "stream=true")
+  public void streamAllProductsByParam(HttpServletResponse response) throws IOException {
+    writeProducts(response);
+  }
+
+  /**
+   * Writes the catalog as one JSON product per line, a page at a time, flushing after each page so
+   * the first bytes go out immediately and memory stays bounded by the page size. It writes to the
+   * servlet response while it reads, so it stays on the request thread in async mode too.
+   */
+  private void writeProducts(HttpServletResponse response) throws IOException {
+    response.setContentType(NDJSON);
+    ObjectWriter writer = objectMapper.writerFor(Product.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream());
+    // lines are separated by the newlines below, not by the default root value separator " "
+    generator.setRootValueSeparator(null);
+    long afterId = 0;
+    List<Product> productList;
+    while (!(productList = productService.getProductList(afterId, MAX_PAGE_SIZE)).isEmpty()) {
+      for (Product product : productList) {
+        writer.writeValue(generator, product);
+        generator.writeRaw('\n');
+      }
+      generator.flush();
+      afterId = productList.get(productList.size() - 1).getId();
+    }
+    generator.close();
+  }
+
+  private String catalogTag(String suffix) {
+    return "\"" + productService.getEpoch() + "-c" + productService.getCatalogVersion() + suffix + "\"";
+  }
+
+  /**
+   * Returns whether an Accept-Encoding header accepts gzip with a non-zero quality, by name or else
+   * by {@code *}.
+   */
+  static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    double gzipQuality = -1;
+    double anyQuality = -1;
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parts = coding.split(";");
+      String name = parts[0].trim();
+      double quality = 1;
+      for (int i = 1; i < parts.length; i++) {
+        String parameter = parts[i].trim();
+        if (parameter.startsWith("q=")) {
+          try {
+            quality = Double.parseDouble(parameter.substring(2));
+          } catch (NumberFormatException e) {
+            quality = 0;
+          }
+        }
+      }
+      if (name.equalsIgnoreCase(GZIP)) {
+        gzipQuality = quality;
+      } else if (name.equals("*")) {
+        anyQuality = quality;
+      }
+    }
+    return (gzipQuality >= 0 ? gzipQuality : anyQuality) > 0;
   }
 }
@@ -0,0 +1,99 @@
+package demo.msa.product.controller;
+
+import demo.msa.product.converter.ProductMediaTypes;
+import demo.msa.product.json.ProductJsonCache;
+import demo.msa.product.model.Product;
+import demo.msa.product.request.ProductRequest;
+import demo.msa.product.service.ProductService;
+import demo.msa.product.service.ProductVersionConflictException;
+import demo.msa.product.web.ProductTags;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Map;
+
+/**
+ * Reads and writes single products on the request thread. {@link AsyncProductCrudController}
+ * replaces it when {@code product.async.enabled} is set.
+ */
+@RestController
+@ConditionalOnProperty(name = "product.async.enabled", havingValue = "false", matchIfMissing = true)
+public class ProductCrudController {
+
+  @Autowired
+  private ProductService productService;
+
+  @Autowired
+  private ProductJsonCache productJsonCache;
+
+  /**
+   * Writes the product's cached JSON bytes rather than the product, so an unchanged product is not
+   * serialized again, unless the client prefers another format.
+   */
+  @GetMapping("/product/{id}")
+  public ResponseEntity<?> getProductById(@PathVariable("id") long id, WebRequest request) {
+    Product product = productService.getProductById(id);
+    if (product == null) {
+      return ResponseEntity.ok().build();
+    }
+    String accept = request.getHeader(HttpHeaders.ACCEPT);
+    // answers If-None-Match with 304 before the product is serialized
+    if (request.checkNotModified(ProductTags.productTag(productService.getEpoch(), product, ProductMediaTypes.tagSuffix(accept)))) {
+      return null;
+    }
+    if (!ProductMediaTypes.prefersJson(accept)) {
+      return ResponseEntity.ok(product);
+    }
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON_UTF8).body(productJsonCache.get(product));
+  }
+
+  @PostMapping("/product")
+  public ResponseEntity<Product> createProduct(@RequestBody ProductRequest productRequest) {
+    String name = productRequest.getName();
+    int price = productRequest.getPrice();
+    try {
+      return ResponseEntity.ok(productService.createProduct(name, price));
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().build();
+    }
+  }
+
+  @PutMapping("/product/{id}")
+  public ResponseEntity<Product> updateProduct(@PathVariable("id") long id, @RequestBody Map<String, Object> fieldMap,
+                                               @RequestHeader(value = "If-Match", required = false) String ifMatch,
+                                               @RequestHeader(value = "Accept", required = false) String accept) {
+    long epoch = productService.getEpoch();
+    try {
+      Product product = productService.updateProduct(id, fieldMap, ProductTags.expectedVersion(epoch, ifMatch));
+      if (product == null) {
+        return ResponseEntity.ok().build();
+      }
+      productJsonCache.invalidate(id);
+      return ResponseEntity.ok().eTag(ProductTags.productTag(epoch, product, ProductMediaTypes.tagSuffix(accept))).body(product);
+    } catch (ProductVersionConflictException e) {
+      return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().build();
+    }
+  }
+
+  @DeleteMapping("/product/{id}")
+  public ResponseEntity<Product> deleteProductById(@PathVariable("id") long id,
+                                                   @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+    try {
+      Product product = productService.deleteProduct(id, ProductTags.expectedVersion(productService.getEpoch(), ifMatch));
+      if (product != null) {
+        productJsonCache.invalidate(id);
+      }
+      return ResponseEntity.ok(product);
+    } catch (ProductVersionConflictException e) {
+      return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+    }
+  }
+}
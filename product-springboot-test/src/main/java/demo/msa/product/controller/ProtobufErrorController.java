@@ -0,0 +1,40 @@
+package demo.msa.product.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.RequestDispatcher;
+import javax.servlet.http.HttpServletRequest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Answers the error page of a client that accepts only Protobuf, which has no message for an error,
+ * with the error as JSON, where Boot's error controller could write no body at all. It takes the
+ * error from the servlet's error attributes, which are the same in every Boot version.
+ */
+@RestController
+public class ProtobufErrorController {
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @RequestMapping(value = "${server.error.path:${error.path:/error}}", produces = "application/x-protobuf")
+  public ResponseEntity<byte[]> error(HttpServletRequest request) throws JsonProcessingException {
+    Object statusCode = request.getAttribute(RequestDispatcher.ERROR_STATUS_CODE);
+    HttpStatus status = statusCode instanceof Integer ? HttpStatus.valueOf((Integer) statusCode) : HttpStatus.INTERNAL_SERVER_ERROR;
+    Map<String, Object> error = new LinkedHashMap<>();
+    error.put("timestamp", System.currentTimeMillis());
+    error.put("status", status.value());
+    error.put("error", status.getReasonPhrase());
+    error.put("message", request.getAttribute(RequestDispatcher.ERROR_MESSAGE));
+    error.put("path", request.getAttribute(RequestDispatcher.ERROR_REQUEST_URI));
+    return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON_UTF8).body(objectMapper.writeValueAsBytes(error));
+  }
+}
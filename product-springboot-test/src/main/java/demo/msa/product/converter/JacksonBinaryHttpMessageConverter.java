@@ -0,0 +1,17 @@
+package demo.msa.product.converter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+
+/**
+ * Reads and writes whatever the JSON converter does, in a binary format of Jackson such as Smile or
+ * CBOR, given a mapper on that format's factory. Spring MVC only ships such converters from
+ * version 5.
+ */
+public class JacksonBinaryHttpMessageConverter extends AbstractJackson2HttpMessageConverter {
+
+  public JacksonBinaryHttpMessageConverter(ObjectMapper objectMapper, MediaType mediaType) {
+    super(objectMapper, mediaType);
+  }
+}
@@ -0,0 +1,77 @@
+package demo.msa.product.converter;
+
+import demo.msa.product.web.ProductTags;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.util.List;
+
+/**
+ * The binary media types the product API is served in besides JSON, which stays the default.
+ */
+public final class ProductMediaTypes {
+
+  public static final MediaType APPLICATION_SMILE = MediaType.valueOf("application/x-jackson-smile");
+
+  public static final MediaType APPLICATION_CBOR = MediaType.valueOf("application/cbor");
+
+  public static final MediaType APPLICATION_PROTOBUF = MediaType.valueOf("application/x-protobuf");
+
+  private static final MediaType[] BINARY = {APPLICATION_SMILE, APPLICATION_CBOR, APPLICATION_PROTOBUF};
+
+  // what a strong tag of each binary format appends to the tag of the JSON representation
+  private static final String[] BINARY_TAG_SUFFIXES = {ProductTags.SMILE_SUFFIX, ProductTags.CBOR_SUFFIX, ProductTags.PROTOBUF_SUFFIX};
+
+  private ProductMediaTypes() {
+  }
+
+  /**
+   * Returns whether JSON is the best match of an Accept header, which it is for a missing header or
+   * one that accepts anything, so the response can be written from pre-serialized JSON. A header
+   * that does not parse is left to content negotiation to reject.
+   */
+  public static boolean prefersJson(String accept) {
+    return preferred(accept) == -1;
+  }
+
+  /**
+   * Returns the suffix that tells the entity tag of the format an Accept header negotiates from the
+   * tags of the other formats of the same resource: none for JSON, and the format's name, such as
+   * {@code -cbor}, for a binary format.
+   */
+  public static String tagSuffix(String accept) {
+    int preferred = preferred(accept);
+    return preferred >= 0 ? BINARY_TAG_SUFFIXES[preferred] : "";
+  }
+
+  /**
+   * Returns the index in {@link #BINARY} of the best match of an Accept header, -1 for JSON, or -2
+   * if it matches no format or does not parse.
+   */
+  private static int preferred(String accept) {
+    if (accept == null || accept.trim().isEmpty()) {
+      return -1;
+    }
+    List<MediaType> mediaTypes;
+    try {
+      mediaTypes = MediaType.parseMediaTypes(accept);
+    } catch (InvalidMediaTypeException e) {
+      return -2;
+    }
+    MediaType.sortBySpecificityAndQuality(mediaTypes);
+    for (MediaType mediaType : mediaTypes) {
+      if (mediaType.getQualityValue() == 0) {
+        continue;
+      }
+      if (mediaType.includes(MediaType.APPLICATION_JSON)) {
+        return -1;
+      }
+      for (int i = 0; i < BINARY.length; i++) {
+        if (mediaType.includes(BINARY[i])) {
+          return i;
+        }
+      }
+    }
+    return -2;
+  }
+}
@@ -0,0 +1,107 @@
+package demo.msa.product.converter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufMapper;
+import com.fasterxml.jackson.dataformat.protobuf.schema.NativeProtobufSchema;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchema;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchemaLoader;
+import demo.msa.product.model.Product;
+import demo.msa.product.request.ProductRequest;
+import demo.msa.product.response.ProductResponse;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads and writes products, product requests and product lists as the Protocol Buffers messages
+ * of {@code product.proto}, whose field names are the JSON property names. A map is read as the
+ * fields of a product, which is how {@code PUT /product/{id}} takes the fields to update, but not
+ * written. Other types have no message, so asking for them in Protobuf is answered 406.
+ */
+public class ProductProtobufHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+  private static final String PROTO = "/product.proto";
+
+  private final Map<Class<?>, ProtobufSchema> schemas = new HashMap<>();
+
+  private final Map<Class<?>, ObjectReader> readers = new HashMap<>();
+
+  private final Map<Class<?>, ObjectWriter> writers = new HashMap<>();
+
+  public ProductProtobufHttpMessageConverter(ProtobufMapper mapper) {
+    super(ProductMediaTypes.APPLICATION_PROTOBUF);
+    NativeProtobufSchema proto;
+    try (InputStream in = getClass().getResourceAsStream(PROTO)) {
+      proto = ProtobufSchemaLoader.std.loadNative(in, true);
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot load " + PROTO, e);
+    }
+    register(mapper, Product.class, proto.forType("Product"));
+    register(mapper, Map.class, proto.forType("Product"));
+    register(mapper, ProductRequest.class, proto.forType("ProductRequest"));
+    register(mapper, ProductResponse.class, proto.forType("ProductResponse"));
+  }
+
+  private void register(ProtobufMapper mapper, Class<?> type, ProtobufSchema schema) {
+    schemas.put(type, schema);
+    readers.put(type, mapper.readerFor(type).with(schema));
+    writers.put(type, mapper.writerFor(type).with(schema));
+  }
+
+  /**
+   * Returns the message the type is read and written as, or null if the type is not supported.
+   */
+  public ProtobufSchema getSchema(Class<?> type) {
+    return schemas.get(key(type));
+  }
+
+  public ObjectReader getReader(Class<?> type) {
+    return readers.get(key(type));
+  }
+
+  public ObjectWriter getWriter(Class<?> type) {
+    return writers.get(key(type));
+  }
+
+  @Override
+  protected boolean supports(Class<?> clazz) {
+    return schemas.containsKey(key(clazz));
+  }
+
+  /**
+   * Writes no maps: the fields of a product are only ever read as one, and the map a handler answers
+   * with, such as Boot's error attributes, has no message.
+   */
+  @Override
+  public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+    return !Map.class.isAssignableFrom(clazz) && super.canWrite(clazz, mediaType);
+  }
+
+  @Override
+  protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+    try {
+      return getReader(clazz).readValue(inputMessage.getBody());
+    } catch (JsonProcessingException e) {
+      throw new HttpMessageNotReadableException("Could not read Protobuf message: " + e.getOriginalMessage(), e);
+    }
+  }
+
+  @Override
+  protected void writeInternal(Object object, HttpOutputMessage outputMessage) throws IOException {
+    getWriter(object.getClass()).writeValue(StreamUtils.nonClosing(outputMessage.getBody()), object);
+  }
+
+  private static Class<?> key(Class<?> type) {
+    return Map.class.isAssignableFrom(type) ? Map.class : type;
+  }
+}
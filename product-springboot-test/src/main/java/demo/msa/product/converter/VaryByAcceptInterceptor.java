@@ -0,0 +1,24 @@
+package demo.msa.product.converter;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Sets {@code Vary: Accept} before the handler runs, so it is on every response whose format was
+ * negotiated, 304s included, and caches keep the formats of a resource apart. A {@code Vary} the
+ * handler sets is added to it.
+ */
+public class VaryByAcceptInterceptor extends HandlerInterceptorAdapter {
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+    // an async dispatch runs the interceptors again
+    if (!response.containsHeader(HttpHeaders.VARY)) {
+      response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+    }
+    return true;
+  }
+}
@@ -0,0 +1,77 @@
+package demo.msa.product.json;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import demo.msa.product.model.Product;
+
+import java.io.UncheckedIOException;
+
+/**
+ * UTF-8 JSON of single products as the JSON converter would write them, so a product that has not
+ * changed since it was last served is written without running Jackson again.
+ *
+ * <p>An entry holds the version it was serialized from and is only served for that version, so
+ * once a write has replaced a product its old bytes are never served again, whichever path made
+ * the write and whether or not it invalidated the entry. Invalidating frees the entry early.
+ */
+public final class ProductJsonCache {
+
+  private final ObjectMapper objectMapper;
+
+  private final Cache<Long, Entry> cache;
+
+  /**
+   * @param maximumSize maximum number of products, or 0 to disable caching
+   */
+  public ProductJsonCache(ObjectMapper objectMapper, long maximumSize) {
+    this.objectMapper = objectMapper;
+    cache = maximumSize > 0 ? Caffeine.newBuilder().maximumSize(maximumSize).build() : null;
+  }
+
+  /**
+   * Returns the JSON of the product, serializing and caching it if the cache does not hold this
+   * version of it. The returned array must not be modified.
+   */
+  public byte[] get(Product product) {
+    if (cache == null) {
+      return serialize(product);
+    }
+    Entry entry = cache.getIfPresent(product.getId());
+    if (entry != null && entry.version == product.getVersion()) {
+      return entry.json;
+    }
+    byte[] json = serialize(product);
+    // a read of an older version that finishes later must not replace a newer one
+    cache.asMap().merge(product.getId(), new Entry(product.getVersion(), json),
+        (current, loaded) -> current.version >= loaded.version ? current : loaded);
+    return json;
+  }
+
+  public void invalidate(long id) {
+    if (cache != null) {
+      cache.invalidate(id);
+    }
+  }
+
+  private byte[] serialize(Product product) {
+    try {
+      return objectMapper.writeValueAsBytes(product);
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static final class Entry {
+
+    final long version;
+
+    final byte[] json;
+
+    Entry(long version, byte[] json) {
+      this.version = version;
+      this.json = json;
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package demo.msa.product.json;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import demo.msa.product.model.Product;
+import demo.msa.product.response.ProductResponse;
+import demo.msa.product.service.ProductService;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The whole catalog as {@code GET /product} answers it, materialized as JSON bytes and their gzip
+ * encoding. It is rebuilt at most once per catalog version: the first request after a write
+ * rebuilds it while concurrent requests wait for that rebuild, and every request until the next
+ * write gets the same bytes. The gzip encoding is only made once a client accepts it.
+ *
+ * <p>The view holds both encodings of the catalog in memory between writes.
+ */
+public final class ProductListView {
+
+  private final ProductService productService;
+
+  private final ObjectMapper objectMapper;
+
+  private volatile Snapshot snapshot;
+
+  public ProductListView(ProductService productService, ObjectMapper objectMapper) {
+    this.productService = productService;
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Returns the view of the catalog at the current catalog version or later.
+   */
+  public Snapshot get() {
+    Snapshot current = snapshot;
+    if (current != null && current.version == productService.getCatalogVersion()) {
+      return current;
+    }
+    synchronized (this) {
+      // read the version before the products, so the view holds at least the writes it counts
+      long version = productService.getCatalogVersion();
+      current = snapshot;
+      if (current != null && current.version == version) {
+        return current;
+      }
+      List<Product> productList = productService.getProductList();
+      ProductResponse response = new ProductResponse();
+      response.setProductList(productList);
+      response.setTotal(productList.size());
+      try {
+        current = new Snapshot(version, objectMapper.writeValueAsBytes(response));
+      } catch (JsonProcessingException e) {
+        throw new UncheckedIOException(e);
+      }
+      snapshot = current;
+      return current;
+    }
+  }
+
+  public static final class Snapshot {
+
+    private final long version;
+
+    private final byte[] json;
+
+    private volatile byte[] gzip;
+
+    Snapshot(long version, byte[] json) {
+      this.version = version;
+      this.json = json;
+    }
+
+    /**
+     * Returns the catalog version the view was built at; it may hold later writes too.
+     */
+    public long getVersion() {
+      return version;
+    }
+
+    /**
+     * Returns the UTF-8 JSON of the catalog, which must not be modified.
+     */
+    public byte[] getJson() {
+      return json;
+    }
+
+    /**
+     * Returns the gzip encoding of {@link #getJson()}, compressing it on the first call. The
+     * returned array must not be modified.
+     */
+    public byte[] getGzip() {
+      byte[] encoded = gzip;
+      if (encoded == null) {
+        synchronized (this) {
+          encoded = gzip;
+          if (encoded == null) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+              gzipOut.write(json);
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+            encoded = gzip = out.toByteArray();
+          }
+        }
+      }
+      return encoded;
+    }
+  }
+}
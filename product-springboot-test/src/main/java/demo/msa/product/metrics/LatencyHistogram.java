@@ -0,0 +1,59 @@
+package demo.msa.product.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts latencies into fixed buckets with the Prometheus default boundaries, from 5 ms to 10 s,
+ * extended down to 0.5 ms. Recording is a binary search and two {@link LongAdder} increments, so
+ * it allocates nothing once the adders have grown to the number of contending threads.
+ */
+public final class LatencyHistogram {
+
+  /**
+   * Upper bounds of the buckets in nanoseconds; a last bucket holds the latencies above them all.
+   */
+  private static final long[] BOUNDS = {
+      500_000L, 1_000_000L, 2_500_000L, 5_000_000L, 10_000_000L, 25_000_000L, 50_000_000L,
+      100_000_000L, 250_000_000L, 500_000_000L, 1_000_000_000L, 2_500_000_000L, 5_000_000_000L,
+      10_000_000_000L
+  };
+
+  private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+
+  private final LongAdder sum = new LongAdder();
+
+  public LatencyHistogram() {
+    for (int i = 0; i < buckets.length; i++) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Returns the upper bounds of the buckets but the last in nanoseconds.
+   */
+  public static long[] getBounds() {
+    return BOUNDS.clone();
+  }
+
+  public void record(long nanos) {
+    int bucket = Arrays.binarySearch(BOUNDS, nanos);
+    buckets[bucket >= 0 ? bucket : -bucket - 1].increment();
+    sum.add(nanos);
+  }
+
+  /**
+   * Returns the count of each bucket, not cumulative, the last one for latencies above all bounds.
+   */
+  public long[] getBucketCounts() {
+    long[] counts = new long[buckets.length];
+    for (int i = 0; i < buckets.length; i++) {
+      counts[i] = buckets[i].sum();
+    }
+    return counts;
+  }
+
+  public long getSumNanos() {
+    return sum.sum();
+  }
+}
@@ -0,0 +1,98 @@
+package demo.msa.product.metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * Latency histograms of the HTTP requests per method, URI pattern and status. A pattern comes from
+ * the request mapping, so there are as many as there are endpoints. Looking a histogram up allocates
+ * nothing once it exists: the pattern strings are the mapping's own, with their hash codes cached,
+ * and method and status index arrays.
+ */
+@Component
+public class RequestMetrics {
+
+  static final String[] METHODS = {"GET", "HEAD", "POST", "PUT", "PATCH", "DELETE", "OPTIONS", "OTHER"};
+
+  private static final int MIN_STATUS = 100;
+
+  private static final int MAX_STATUS = 599;
+
+  /**
+   * The pattern of requests no handler mapping matched.
+   */
+  static final String UNMATCHED = "UNMATCHED";
+
+  // pattern -> method index * statuses + status - MIN_STATUS -> histogram
+  private final ConcurrentHashMap<String, AtomicReferenceArray<LatencyHistogram>> histograms = new ConcurrentHashMap<>();
+
+  private final Function<String, AtomicReferenceArray<LatencyHistogram>> newHistograms =
+      pattern -> new AtomicReferenceArray<>(METHODS.length * (MAX_STATUS - MIN_STATUS + 1));
+
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  public void requestStarted() {
+    inFlight.incrementAndGet();
+  }
+
+  /**
+   * Records a finished request; a null pattern counts as {@link #UNMATCHED} and a status outside
+   * 100-599 as 599.
+   */
+  public void requestFinished(String method, String pattern, int status, long nanos) {
+    inFlight.decrementAndGet();
+    String key = pattern != null ? pattern : UNMATCHED;
+    // get first: computeIfAbsent locks the bin even if the key is there
+    AtomicReferenceArray<LatencyHistogram> byStatus = histograms.get(key);
+    if (byStatus == null) {
+      byStatus = histograms.computeIfAbsent(key, newHistograms);
+    }
+    int index = methodIndex(method) * (MAX_STATUS - MIN_STATUS + 1)
+        + Math.min(Math.max(status, MIN_STATUS), MAX_STATUS) - MIN_STATUS;
+    LatencyHistogram histogram = byStatus.get(index);
+    if (histogram == null) {
+      byStatus.compareAndSet(index, null, new LatencyHistogram());
+      histogram = byStatus.get(index);
+    }
+    histogram.record(nanos);
+  }
+
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  /**
+   * Passes every histogram with its method, pattern and status to the visitor.
+   */
+  public void forEach(HistogramVisitor visitor) {
+    int statuses = MAX_STATUS - MIN_STATUS + 1;
+    for (Map.Entry<String, AtomicReferenceArray<LatencyHistogram>> entry : histograms.entrySet()) {
+      AtomicReferenceArray<LatencyHistogram> byStatus = entry.getValue();
+      for (int index = 0; index < byStatus.length(); index++) {
+        LatencyHistogram histogram = byStatus.get(index);
+        if (histogram != null) {
+          visitor.visit(METHODS[index / statuses], entry.getKey(), MIN_STATUS + index % statuses, histogram);
+        }
+      }
+    }
+  }
+
+  private static int methodIndex(String method) {
+    for (int i = 0; i < METHODS.length - 1; i++) {
+      if (METHODS[i].equals(method)) {
+        return i;
+      }
+    }
+    return METHODS.length - 1;
+  }
+
+  public interface HistogramVisitor {
+
+    void visit(String method, String pattern, int status, LatencyHistogram histogram);
+  }
+}
@@ -0,0 +1,91 @@
+package demo.msa.product.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Times every request around all other filters and records it in {@link RequestMetrics} under the
+ * pattern of the handler mapping that matched it. An asynchronous request is recorded by an
+ * {@link AsyncListener} when it completes, which the container also does after a timeout or an
+ * error with no dispatch back to the application, such as the client going away.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestMetricsFilter extends OncePerRequestFilter {
+
+  @Autowired
+  private RequestMetrics requestMetrics;
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    long start = System.nanoTime();
+    requestMetrics.requestStarted();
+    int status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+    try {
+      chain.doFilter(request, response);
+      status = response.getStatus();
+    } finally {
+      if (request.isAsyncStarted()) {
+        request.getAsyncContext().addListener(new CompletionListener(request, response, start));
+      } else {
+        // an exception leaves the status at 500, which the container then sends
+        finished(request, status, start);
+      }
+    }
+  }
+
+  private void finished(HttpServletRequest request, int status, long start) {
+    requestMetrics.requestFinished(request.getMethod(),
+        (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE), status, System.nanoTime() - start);
+  }
+
+  private class CompletionListener implements AsyncListener {
+
+    // not the event's, which are null if async was started without them
+    private final HttpServletRequest request;
+
+    private final HttpServletResponse response;
+
+    private final long start;
+
+    CompletionListener(HttpServletRequest request, HttpServletResponse response, long start) {
+      this.request = request;
+      this.response = response;
+      this.start = start;
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+      finished(request, response.getStatus(), start);
+    }
+
+    // the container completes the request after these unless a listener dispatches it, and
+    // onComplete then sees the final status
+    @Override
+    public void onTimeout(AsyncEvent event) {
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+      // async restarted by a later dispatch drops its listeners
+      event.getAsyncContext().addListener(this);
+    }
+  }
+}
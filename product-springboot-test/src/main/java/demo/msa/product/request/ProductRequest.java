@@ -1,23 +0,0 @@
-package demo.msa.product.request;
-
-public class ProductRequest {
-
-  private String name;
-  private int price;
-
-  public String getName() {
-    return name;
-  }
-
-  public void setName(String name) {
-    this.name = name;
-  }
-
-  public int getPrice() {
-    return price;
-  }
-
-  public void setPrice(int price) {
-    this.price = price;
-  }
-}
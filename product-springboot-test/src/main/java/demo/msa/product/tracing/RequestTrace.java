@@ -0,0 +1,231 @@
+package demo.msa.product.tracing;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The phases of one request, marked with {@link System#nanoTime()} as the request passes the
+ * tracing filter, the handler interceptor, the body advice and the JSON converter:
+ *
+ * <ul>
+ * <li>dispatch: from the filter to the handler, covering the other filters and the handler lookup
+ * <li>deserialize: reading the request body
+ * <li>service: the rest of the handler, mostly the {@code ProductService} call, including the wait
+ * for the executor of an asynchronous handler
+ * <li>serialize: writing the response body to bytes
+ * <li>write: sending the bytes and the filters on the way out
+ * </ul>
+ *
+ * <p>A phase a request did not go through is 0, and so is every phase of a request that was not
+ * traced but is kept for being slow. The trace of the request the calling thread is handling is
+ * {@link #current()}.
+ */
+public class RequestTrace {
+
+  private static final ThreadLocal<RequestTrace> current = new ThreadLocal<>();
+
+  private final long timestamp;
+
+  private final long start;
+
+  private final boolean sampled;
+
+  private String method;
+
+  private String uri;
+
+  private int status;
+
+  private long handlerStart;
+
+  private long readStart;
+
+  private long readEnd;
+
+  private long handlerEnd;
+
+  private long serializeEnd;
+
+  private long end;
+
+  RequestTrace(boolean sampled) {
+    this(System.currentTimeMillis(), System.nanoTime(), sampled);
+  }
+
+  private RequestTrace(long timestamp, long start, boolean sampled) {
+    this.timestamp = timestamp;
+    this.start = start;
+    this.sampled = sampled;
+  }
+
+  /**
+   * Returns the finished trace of a request that started at {@code start} without being traced,
+   * which has its total time only.
+   */
+  static RequestTrace untraced(long start, String method, String uri, int status) {
+    long end = System.nanoTime();
+    RequestTrace trace = new RequestTrace(System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(end - start), start, false);
+    trace.method = method;
+    trace.uri = uri;
+    trace.status = status;
+    trace.end = end;
+    return trace;
+  }
+
+  public static RequestTrace current() {
+    return current.get();
+  }
+
+  static void setCurrent(RequestTrace trace) {
+    if (trace != null) {
+      current.set(trace);
+    } else {
+      current.remove();
+    }
+  }
+
+  /**
+   * Marks the start of the handler, unless it has already started: the dispatch that completes an
+   * asynchronous request passes the interceptor again.
+   */
+  void markHandlerStart() {
+    if (handlerStart == 0) {
+      handlerStart = System.nanoTime();
+    }
+  }
+
+  void markReadStart() {
+    readStart = System.nanoTime();
+  }
+
+  void markReadEnd() {
+    readEnd = System.nanoTime();
+  }
+
+  /**
+   * Marks the end of the handler, unless it has already ended.
+   */
+  void markHandlerEnd() {
+    if (handlerEnd == 0) {
+      handlerEnd = System.nanoTime();
+    }
+  }
+
+  void markSerializeEnd() {
+    serializeEnd = System.nanoTime();
+  }
+
+  void finish(String method, String uri, int status) {
+    this.method = method;
+    this.uri = uri;
+    this.status = status;
+    end = System.nanoTime();
+  }
+
+  /**
+   * Returns the {@code Server-Timing} header value of the phases that have ended.
+   */
+  String toServerTiming() {
+    StringBuilder header = new StringBuilder(96);
+    appendTiming(header, "dispatch", dispatchNanos());
+    appendTiming(header, "deserialize", deserializeNanos());
+    appendTiming(header, "service", serviceNanos());
+    appendTiming(header, "serialize", serializeNanos());
+    return header.toString();
+  }
+
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public String getMethod() {
+    return method;
+  }
+
+  public String getUri() {
+    return uri;
+  }
+
+  public int getStatus() {
+    return status;
+  }
+
+  public double getTotalMs() {
+    return toMillis(end - start);
+  }
+
+  public double getDispatchMs() {
+    return toMillis(dispatchNanos());
+  }
+
+  public double getDeserializeMs() {
+    return toMillis(deserializeNanos());
+  }
+
+  public double getServiceMs() {
+    return toMillis(serviceNanos());
+  }
+
+  public double getSerializeMs() {
+    return toMillis(serializeNanos());
+  }
+
+  public double getWriteMs() {
+    long from = serializeEnd != 0 ? serializeEnd : handlerEnd;
+    return from != 0 ? toMillis(end - from) : 0;
+  }
+
+  /**
+   * Returns whether the trace is kept whatever its duration.
+   */
+  @JsonIgnore
+  boolean isSampled() {
+    return sampled;
+  }
+
+  @JsonIgnore
+  long getTotalNanos() {
+    return end - start;
+  }
+
+  private long dispatchNanos() {
+    return handlerStart != 0 ? handlerStart - start : 0;
+  }
+
+  private long deserializeNanos() {
+    return readEnd != 0 ? readEnd - readStart : 0;
+  }
+
+  private long serviceNanos() {
+    return handlerEnd != 0 ? handlerEnd - handlerStart - deserializeNanos() : 0;
+  }
+
+  private long serializeNanos() {
+    return serializeEnd != 0 ? serializeEnd - handlerEnd : 0;
+  }
+
+  private static void appendTiming(StringBuilder header, String name, long nanos) {
+    if (nanos == 0) {
+      return;
+    }
+    if (header.length() > 0) {
+      header.append(", ");
+    }
+    // milliseconds with three decimals, without the cost of String.format
+    long micros = nanos / 1000;
+    header.append(name).append(";dur=").append(micros / 1000).append('.');
+    long fraction = micros % 1000;
+    if (fraction < 100) {
+      header.append('0');
+    }
+    if (fraction < 10) {
+      header.append('0');
+    }
+    header.append(fraction);
+  }
+
+  private static double toMillis(long nanos) {
+    return nanos / 1000 / 1000.0;
+  }
+}
@@ -0,0 +1,90 @@
+package demo.msa.product.tracing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Keeps the most recent traces of a sample of the requests, plus every request slower than a
+ * threshold, in a fixed ring that overwrites the oldest trace. Only sampled requests are traced
+ * phase by phase, unless {@code product.trace.server-timing} traces them all; a slow request that
+ * was not is kept with its total time only.
+ */
+@Component
+public class RequestTraces {
+
+  @Value("${product.trace.sample-rate:0.01}")
+  private double sampleRate;
+
+  @Value("${product.trace.slow-threshold-ms:500}")
+  private long slowThresholdMs;
+
+  @Value("${product.trace.buffer-size:1024}")
+  private int bufferSize;
+
+  private long slowThresholdNanos;
+
+  private AtomicReferenceArray<RequestTrace> ring;
+
+  private final AtomicLong next = new AtomicLong();
+
+  @PostConstruct
+  public void init() {
+    slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMs);
+    ring = new AtomicReferenceArray<>(Math.max(bufferSize, 1));
+  }
+
+  /**
+   * Decides as a request starts whether it is sampled, so that it is traced and kept whatever its
+   * duration.
+   */
+  public boolean sample() {
+    return ThreadLocalRandom.current().nextDouble() < sampleRate;
+  }
+
+  /**
+   * Keeps the finished trace if it is sampled or slow.
+   */
+  public void offer(RequestTrace trace) {
+    if (trace.isSampled() || trace.getTotalNanos() >= slowThresholdNanos) {
+      keep(trace);
+    }
+  }
+
+  /**
+   * Keeps a request that started at {@code start} without being traced if it is slow, with its total
+   * time only, so slow requests are listed even when they were not sampled.
+   */
+  public void offerUntraced(String method, String uri, int status, long start) {
+    if (System.nanoTime() - start >= slowThresholdNanos) {
+      keep(RequestTrace.untraced(start, method, uri, status));
+    }
+  }
+
+  private void keep(RequestTrace trace) {
+    ring.set((int) (next.getAndIncrement() % ring.length()), trace);
+  }
+
+  /**
+   * Returns up to {@code limit} of the kept traces, slowest first.
+   */
+  public List<RequestTrace> getSlowest(int limit) {
+    List<RequestTrace> traces = new ArrayList<>(ring.length());
+    for (int i = 0; i < ring.length(); i++) {
+      RequestTrace trace = ring.get(i);
+      if (trace != null) {
+        traces.add(trace);
+      }
+    }
+    traces.sort(Comparator.comparingLong(RequestTrace::getTotalNanos).reversed());
+    return traces.subList(0, Math.min(limit, traces.size()));
+  }
+}
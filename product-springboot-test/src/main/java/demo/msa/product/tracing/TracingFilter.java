@@ -0,0 +1,144 @@
+package demo.msa.product.tracing;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Starts a {@link RequestTrace}, right after the metrics filter, for a request {@link RequestTraces}
+ * samples, or for every request if {@code product.trace.server-timing} is set, and hands the
+ * finished trace to {@link RequestTraces}. Other requests are only timed as a whole, so a slow one
+ * is still kept. An asynchronous request keeps its trace in a request attribute for the dispatches
+ * that continue it, and is finished by an {@link AsyncListener} when it completes, times out or
+ * fails, whether or not it is dispatched again.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class TracingFilter extends OncePerRequestFilter {
+
+  private static final String TRACE_ATTRIBUTE = RequestTrace.class.getName();
+
+  @Autowired
+  private RequestTraces requestTraces;
+
+  @Value("${product.trace.server-timing:false}")
+  private boolean serverTiming;
+
+  @Override
+  protected boolean shouldNotFilterAsyncDispatch() {
+    return false;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    boolean asyncDispatch = isAsyncDispatch(request);
+    RequestTrace trace;
+    long start = 0;
+    if (asyncDispatch) {
+      trace = (RequestTrace) request.getAttribute(TRACE_ATTRIBUTE);
+    } else {
+      boolean sampled = requestTraces.sample();
+      trace = sampled || serverTiming ? new RequestTrace(sampled) : null;
+      if (trace == null) {
+        start = System.nanoTime();
+      }
+    }
+    if (trace != null) {
+      RequestTrace.setCurrent(trace);
+    }
+    int status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+    try {
+      chain.doFilter(request, response);
+      status = response.getStatus();
+    } finally {
+      if (trace != null) {
+        RequestTrace.setCurrent(null);
+      }
+      // after an async dispatch, the listener added when async started finishes the request
+      if (!asyncDispatch) {
+        if (request.isAsyncStarted()) {
+          if (trace != null) {
+            request.setAttribute(TRACE_ATTRIBUTE, trace);
+          }
+          request.getAsyncContext().addListener(new CompletionListener(request, response, trace, start));
+        } else {
+          finished(request, trace, start, status);
+        }
+      }
+    }
+  }
+
+  private void finished(HttpServletRequest request, RequestTrace trace, long start, int status) {
+    if (trace != null) {
+      trace.finish(request.getMethod(), request.getRequestURI(), status);
+      requestTraces.offer(trace);
+    } else {
+      requestTraces.offerUntraced(request.getMethod(), request.getRequestURI(), status, start);
+    }
+  }
+
+  /**
+   * Finishes the request at the first of its completion, timeout or error, so a request that times
+   * out or fails is kept at the time it did, with the status the container will answer with.
+   */
+  private class CompletionListener implements AsyncListener {
+
+    // not the event's, which are null if async was started without them
+    private final HttpServletRequest request;
+
+    private final HttpServletResponse response;
+
+    private final RequestTrace trace;
+
+    private final long start;
+
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    CompletionListener(HttpServletRequest request, HttpServletResponse response, RequestTrace trace, long start) {
+      this.request = request;
+      this.response = response;
+      this.trace = trace;
+      this.start = start;
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+      finish(response.getStatus());
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+      finish(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+      finish(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+      // async restarted by a later dispatch drops its listeners
+      event.getAsyncContext().addListener(this);
+    }
+
+    private void finish(int status) {
+      if (finished.compareAndSet(false, true)) {
+        finished(request, trace, start, status);
+      }
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package demo.msa.product.tracing;
+
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Marks where the handler starts and, for handlers that write no body through a converter, where it
+ * ends, and sets {@code Server-Timing} if no converter has.
+ */
+public class TracingInterceptor extends HandlerInterceptorAdapter {
+
+  static final String SERVER_TIMING = "Server-Timing";
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+    RequestTrace trace = RequestTrace.current();
+    if (trace != null) {
+      trace.markHandlerStart();
+    }
+    return true;
+  }
+
+  @Override
+  public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView modelAndView) {
+    RequestTrace trace = RequestTrace.current();
+    if (trace != null) {
+      trace.markHandlerEnd();
+      if (!response.isCommitted() && !response.containsHeader(SERVER_TIMING)) {
+        response.setHeader(SERVER_TIMING, trace.toServerTiming());
+      }
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package demo.msa.product.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+
+/**
+ * Serializes the JSON responses of traced requests to bytes before writing them, so the
+ * serialization time is known in time for the {@code Server-Timing} header, and the response
+ * carries a {@code Content-Length} instead of being chunked. Other responses are written straight
+ * to the response, without the copy.
+ */
+public class TracingJackson2HttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+  public TracingJackson2HttpMessageConverter(ObjectMapper objectMapper) {
+    super(objectMapper);
+  }
+
+  @Override
+  protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+    RequestTrace trace = RequestTrace.current();
+    if (trace == null) {
+      super.writeInternal(object, type, outputMessage);
+      return;
+    }
+    ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+    super.writeInternal(object, type, new HttpOutputMessage() {
+      @Override
+      public OutputStream getBody() {
+        return body;
+      }
+
+      @Override
+      public HttpHeaders getHeaders() {
+        return outputMessage.getHeaders();
+      }
+    });
+    trace.markSerializeEnd();
+    HttpHeaders headers = outputMessage.getHeaders();
+    headers.setContentLength(body.size());
+    headers.set(TracingInterceptor.SERVER_TIMING, trace.toServerTiming());
+    body.writeTo(outputMessage.getBody());
+  }
+}
@@ -0,0 +1,41 @@
+package demo.msa.product.tracing;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import java.lang.reflect.Type;
+
+/**
+ * Marks the start and end of reading the request body.
+ */
+@ControllerAdvice
+public class TracingRequestBodyAdvice extends RequestBodyAdviceAdapter {
+
+  @Override
+  public boolean supports(MethodParameter methodParameter, Type targetType, Class<? extends HttpMessageConverter<?>> converterType) {
+    return true;
+  }
+
+  @Override
+  public HttpInputMessage beforeBodyRead(HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                                         Class<? extends HttpMessageConverter<?>> converterType) {
+    RequestTrace trace = RequestTrace.current();
+    if (trace != null) {
+      trace.markReadStart();
+    }
+    return inputMessage;
+  }
+
+  @Override
+  public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                              Class<? extends HttpMessageConverter<?>> converterType) {
+    RequestTrace trace = RequestTrace.current();
+    if (trace != null) {
+      trace.markReadEnd();
+    }
+    return body;
+  }
+}
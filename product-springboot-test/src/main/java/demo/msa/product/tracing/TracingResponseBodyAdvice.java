@@ -0,0 +1,36 @@
+package demo.msa.product.tracing;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Marks the end of the handler, which is when its return value reaches the response body advice.
+ * A body that is already bytes has no serialize phase, so its timing is complete here.
+ */
+@ControllerAdvice
+public class TracingResponseBodyAdvice implements ResponseBodyAdvice<Object> {
+
+  @Override
+  public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+    return true;
+  }
+
+  @Override
+  public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                ServerHttpRequest request, ServerHttpResponse response) {
+    RequestTrace trace = RequestTrace.current();
+    if (trace != null) {
+      trace.markHandlerEnd();
+      if (body instanceof byte[]) {
+        response.getHeaders().set(TracingInterceptor.SERVER_TIMING, trace.toServerTiming());
+      }
+    }
+    return body;
+  }
+}
@@ -0,0 +1,51 @@
+package demo.msa.product.test;
+
+import demo.msa.product.controller.ProductController;
+import org.assertj.core.api.Assertions;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.Collections;
+
+/**
+ * Runs the controller tests against the asynchronous endpoints.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "product.async.enabled=true")
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class AsyncProductControllerTest extends ProductControllerTest {
+
+  @Autowired
+  private TestRestTemplate restTemplate;
+
+  @Autowired
+  private ProductController productController;
+
+  @Test
+  public void testZ_callsServiceOffTheRequestThread() throws Exception {
+    ServletWebRequest request = new ServletWebRequest(new MockHttpServletRequest("GET", "/product"), new MockHttpServletResponse());
+    Assertions.assertThat(productController.getAllProducts(2, null, null, null, null, request)).isInstanceOf(DeferredResult.class);
+    Assertions.assertThat(productController.searchProducts("mac", null)).isInstanceOf(DeferredResult.class);
+    Assertions.assertThat(productController.bulkProducts(Collections.emptyList())).isInstanceOf(DeferredResult.class);
+    // served from the list view without a service call
+    Assertions.assertThat(productController.getAllProducts(null, null, null, null, null, request)).isInstanceOf(ResponseEntity.class);
+  }
+
+  @Test
+  public void testZ_recordsAsyncRequestsWhenComplete() throws Exception {
+    restTemplate.getForObject("/product/2", String.class);
+    String metrics = restTemplate.getForObject("/metrics", String.class);
+    Assertions.assertThat(metrics)
+        .containsPattern("http_server_request_duration_seconds_count\\{method=\"GET\",uri=\"/product/\\{id}\",status=\"200\"} [1-9]")
+        // only the metrics request itself
+        .contains("http_server_requests_in_flight 1\n");
+  }
+}
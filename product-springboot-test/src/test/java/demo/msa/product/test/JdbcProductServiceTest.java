@@ -0,0 +1,68 @@
+package demo.msa.product.test;
+
+import demo.msa.product.model.Product;
+import demo.msa.product.service.ProductService;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"product.repository=h2", "product.h2.url=jdbc:h2:mem:product-service-test;DB_CLOSE_DELAY=-1"})
+public class JdbcProductServiceTest {
+
+  @Autowired
+  private ProductService productService;
+
+  @Test
+  public void readsDuringBatchDoNotOutliveIt() throws Exception {
+    Product product = productService.createProduct("iMac", 8000);
+    long id = product.getId();
+    ExecutorService reader = Executors.newSingleThreadExecutor();
+    long[] versionDuringBatch = new long[1];
+    try {
+      productService.batch(() -> {
+        productService.updateProduct(id, Collections.singletonMap("price", 9000));
+        try {
+          // another connection still reads the committed product and caches it
+          Product read = reader.submit(() -> productService.getProductById(id)).get(10, TimeUnit.SECONDS);
+          Assertions.assertThat(read.getPrice()).isEqualTo(8000);
+          versionDuringBatch[0] = reader.submit(productService::getCatalogVersion).get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+      });
+    } finally {
+      reader.shutdown();
+    }
+    Assertions.assertThat(productService.getProductById(id).getPrice()).isEqualTo(9000);
+    Assertions.assertThat(productService.getCatalogVersion()).isGreaterThan(versionDuringBatch[0]);
+  }
+
+  @Test
+  public void rolledBackBatchLeavesNothingCached() throws Exception {
+    Product product = productService.createProduct("Mac Pro", 30000);
+    long id = product.getId();
+    long version = productService.getCatalogVersion();
+    try {
+      productService.batch(() -> {
+        productService.updateProduct(id, Collections.singletonMap("price", 1));
+        // the batch's own connection reads, and caches, its uncommitted write
+        Assertions.assertThat(productService.getProductById(id).getPrice()).isEqualTo(1);
+        throw new IllegalStateException("abort");
+      });
+      Assertions.fail("batch did not throw");
+    } catch (IllegalStateException e) {
+      Assertions.assertThat(e).hasMessage("abort");
+    }
+    Assertions.assertThat(productService.getProductById(id).getPrice()).isEqualTo(30000);
+    Assertions.assertThat(productService.getCatalogVersion()).isGreaterThan(version);
+  }
+}
@@ -0,0 +1,69 @@
+package demo.msa.product.test;
+
+import demo.msa.product.model.Product;
+import demo.msa.product.repository.MappedProductRepository;
+import demo.msa.product.request.ProductRequest;
+import demo.msa.product.response.ProductResponse;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.skyscreamer.jsonassert.JSONAssert;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.RequestEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.net.URI;
+import java.util.Collections;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {"product.repository=mapped", "product.mapped.file=target/mapped-controller-test/products.dat"})
+public class MappedProductControllerTest {
+
+  private static final String LONG_NAME = String.join("", Collections.nCopies(MappedProductRepository.MAX_NAME_BYTES + 1, "a"));
+
+  @Autowired
+  private TestRestTemplate restTemplate;
+
+  @Test
+  public void rejectsNamesTooLongToStore() throws Exception {
+    ProductRequest request = new ProductRequest();
+    request.setName(LONG_NAME);
+    request.setPrice(1000);
+    int total = restTemplate.getForObject("/product", ProductResponse.class).getTotal();
+    Assertions.assertThat(restTemplate.postForEntity("/product", request, String.class).getStatusCode())
+        .isEqualTo(HttpStatus.BAD_REQUEST);
+    Assertions.assertThat(restTemplate.getForObject("/product", ProductResponse.class).getTotal()).isEqualTo(total);
+
+    request.setName("iPod");
+    Product product = restTemplate.postForObject("/product", request, Product.class);
+    RequestEntity<?> update = RequestEntity.put(new URI("/product/" + product.getId()))
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(Collections.singletonMap("name", LONG_NAME));
+    Assertions.assertThat(restTemplate.exchange(update, String.class).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    Assertions.assertThat(restTemplate.getForObject("/product/" + product.getId(), Product.class).getName()).isEqualTo("iPod");
+  }
+
+  @Test
+  public void rejectsNamesTooLongToStoreInBulk() throws Exception {
+    String request = "["
+        + "{\"op\":\"create\",\"name\":\"iPad\",\"price\":5000},"
+        + "{\"op\":\"create\",\"name\":\"" + LONG_NAME + "\",\"price\":5000},"
+        + "{\"op\":\"create\",\"name\":\"iPad mini\",\"price\":4000}"
+        + "]";
+    RequestEntity<String> requestEntity = RequestEntity.post(new URI("/product/_bulk"))
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(request);
+    String actual = restTemplate.exchange(requestEntity, String.class).getBody();
+    String expected = "{\"items\":["
+        + "{\"op\":\"create\",\"status\":201,\"product\":{\"name\":\"iPad\"}},"
+        + "{\"op\":\"create\",\"status\":400},"
+        + "{\"op\":\"create\",\"status\":201,\"product\":{\"name\":\"iPad mini\"}}"
+        + "],\"errors\":1}";
+    JSONAssert.assertEquals(expected, actual, false);
+  }
+}
@@ -3,6 +3,7 @@ package demo.msa.product.test;
 import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.JsonPath;
 import demo.msa.product.model.Product;
+import demo.msa.product.request.ProductIdsRequest;
 import demo.msa.product.request.ProductRequest;
 import demo.msa.product.response.ProductResponse;
 import org.assertj.core.api.Assertions;
@@ -14,13 +15,26 @@ import org.skyscreamer.jsonassert.JSONAssert;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.RequestEntity;
+import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.util.StreamUtils;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -61,6 +75,15 @@ public class ProductControllerTest {
     JSONAssert.assertEquals(expected, actual, false);
   }
 
+  @Test
+  public void test1_getProductById_5() throws Exception {
+    String json = restTemplate.getForObject("/product/1", String.class);
+    DocumentContext ctx = JsonPath.parse(json);
+    Assertions.assertThat((int) ctx.read("$.id")).isEqualTo(1);
+    Assertions.assertThat((String) ctx.read("$.name")).isEqualTo("MacBook");
+    Assertions.assertThat((int) ctx.read("$.price")).isEqualTo(10000);
+  }
+
   @Test
   public void test2_createProduct() throws Exception {
     ProductRequest request = new ProductRequest();
@@ -85,6 +108,25 @@ public class ProductControllerTest {
     Assertions.assertThat(price).isEqualTo(9000);
   }
 
+  @Test
+  public void test3_updateProduct_2() throws Exception {
+    Map<String, Object> fieldMap = new HashMap<>();
+    fieldMap.put("price", 1);
+    fieldMap.put("id", 5);
+    RequestEntity<Map<String, Object>> requestEntity = new RequestEntity<>(fieldMap, HttpMethod.PUT, new URI("/product/4"));
+    HttpStatus status = restTemplate.exchange(requestEntity, String.class).getStatusCode();
+    Assertions.assertThat(status).isEqualTo(HttpStatus.BAD_REQUEST);
+
+    fieldMap.clear();
+    fieldMap.put("price", "cheap");
+    requestEntity = new RequestEntity<>(fieldMap, HttpMethod.PUT, new URI("/product/4"));
+    status = restTemplate.exchange(requestEntity, String.class).getStatusCode();
+    Assertions.assertThat(status).isEqualTo(HttpStatus.BAD_REQUEST);
+
+    Product product = restTemplate.getForObject("/product/4", Product.class);
+    Assertions.assertThat(product.getPrice()).isEqualTo(9000);
+  }
+
   @Test
   public void test4_deleteProductById() throws Exception {
     String expected = "{\"id\":4,\"name\":\"iMac\",\"price\":9000}";
@@ -105,4 +147,288 @@ public class ProductControllerTest {
     Assertions.assertThat(response.getProductList()).isNotNull();
     Assertions.assertThat(response.getTotal()).isEqualTo(3);
   }
+
+  @Test
+  public void test6_getProductPage() throws Exception {
+    ProductResponse page1 = restTemplate.getForObject("/product?limit=2", ProductResponse.class);
+    Assertions.assertThat(page1.getProductList()).extracting("id").containsExactly(1L, 2L);
+    Assertions.assertThat(page1.getTotal()).isEqualTo(3);
+    Assertions.assertThat(page1.getNext()).isNotNull();
+
+    ProductResponse page2 = restTemplate.getForObject("/product?limit=2&after=" + page1.getNext(), ProductResponse.class);
+    Assertions.assertThat(page2.getProductList()).extracting("id").containsExactly(3L);
+    Assertions.assertThat(page2.getTotal()).isEqualTo(3);
+    Assertions.assertThat(page2.getNext()).isNull();
+  }
+
+  @Test
+  public void test6_getProductPage_2() throws Exception {
+    HttpStatus status = restTemplate.getForEntity("/product?limit=2&after=bogus!", String.class).getStatusCode();
+    Assertions.assertThat(status).isEqualTo(HttpStatus.BAD_REQUEST);
+    status = restTemplate.getForEntity("/product?limit=0", String.class).getStatusCode();
+    Assertions.assertThat(status).isEqualTo(HttpStatus.BAD_REQUEST);
+  }
+
+  @Test
+  public void test7_streamProductList() throws Exception {
+    RequestEntity<Void> requestEntity = RequestEntity.get(new URI("/product"))
+        .accept(MediaType.valueOf("application/x-ndjson"))
+        .build();
+    ResponseEntity<String> response = restTemplate.exchange(requestEntity, String.class);
+    Assertions.assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE)).startsWith("application/x-ndjson");
+    String[] lines = response.getBody().split("\n");
+    Assertions.assertThat(lines).hasSize(3);
+    JSONAssert.assertEquals("{\"id\":1,\"name\":\"MacBook\",\"price\":10000}", lines[0], false);
+    Assertions.assertThat(lines[1]).startsWith("{\"id\":2,");
+    JSONAssert.assertEquals("{\"id\":3,\"name\":\"MacBook Pro\",\"price\":12000}", lines[2], false);
+  }
+
+  @Test
+  public void test7_streamProductList_2() throws Exception {
+    String actual = restTemplate.getForObject("/product?stream=true", String.class);
+    Assertions.assertThat(actual.split("\n")).hasSize(3);
+  }
+
+  @Test
+  public void test8_getProductListByPrice() throws Exception {
+    ProductResponse response = restTemplate.getForObject("/product?minPrice=8000&maxPrice=12000", ProductResponse.class);
+    Assertions.assertThat(response.getProductList()).extracting("id").containsExactly(1L, 3L);
+    Assertions.assertThat(response.getNext()).isNull();
+  }
+
+  @Test
+  public void test8_getProductListByPrice_2() throws Exception {
+    ProductResponse page1 = restTemplate.getForObject("/product?sort=price&limit=2", ProductResponse.class);
+    Assertions.assertThat(page1.getProductList()).extracting("price").containsExactly(7000, 10000);
+    Assertions.assertThat(page1.getNext()).isNotNull();
+
+    ProductResponse page2 = restTemplate.getForObject("/product?sort=price&limit=2&after=" + page1.getNext(), ProductResponse.class);
+    Assertions.assertThat(page2.getProductList()).extracting("price").containsExactly(12000);
+    Assertions.assertThat(page2.getNext()).isNull();
+
+    HttpStatus status = restTemplate.getForEntity("/product?limit=2&after=" + page1.getNext(), String.class).getStatusCode();
+    Assertions.assertThat(status).isEqualTo(HttpStatus.BAD_REQUEST);
+  }
+
+  @Test
+  public void test9_searchProducts() throws Exception {
+    ProductResponse response = restTemplate.getForObject("/product/search?q=macbook pro", ProductResponse.class);
+    Assertions.assertThat(response.getProductList()).extracting("id").containsExactly(3L, 1L, 2L);
+    Assertions.assertThat(response.getTotal()).isEqualTo(3);
+
+    response = restTemplate.getForObject("/product/search?q=air&limit=5", ProductResponse.class);
+    Assertions.assertThat(response.getProductList()).extracting("name").containsExactly("MacBook Air");
+  }
+
+  @Test
+  public void test9_suggestProductNames() throws Exception {
+    String actual = restTemplate.getForObject("/product/suggest?prefix=mac", String.class);
+    JSONAssert.assertEquals("[\"MacBook\",\"MacBook Air\",\"MacBook Pro\"]", actual, true);
+
+    actual = restTemplate.getForObject("/product/suggest?prefix=MacBook P", String.class);
+    JSONAssert.assertEquals("[\"MacBook Pro\"]", actual, true);
+  }
+
+  @Test
+  public void testA_bulkProducts() throws Exception {
+    String request = "["
+        + "{\"op\":\"create\",\"name\":\"iPhone\",\"price\":5000},"
+        + "{\"op\":\"update\",\"id\":2,\"fields\":{\"price\":6500}},"
+        + "{\"op\":\"update\",\"id\":2,\"fields\":{\"id\":7}},"
+        + "{\"op\":\"delete\",\"id\":999},"
+        + "{\"op\":\"rename\"}"
+        + "]";
+    RequestEntity<String> requestEntity = RequestEntity.post(new URI("/product/_bulk"))
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(request);
+    String actual = restTemplate.exchange(requestEntity, String.class).getBody();
+    String expected = "{\"items\":["
+        + "{\"op\":\"create\",\"status\":201,\"product\":{\"id\":5,\"name\":\"iPhone\",\"price\":5000}},"
+        + "{\"op\":\"update\",\"status\":200,\"product\":{\"id\":2,\"price\":6500}},"
+        + "{\"op\":\"update\",\"status\":400},"
+        + "{\"op\":\"delete\",\"status\":404},"
+        + "{\"op\":\"rename\",\"status\":400}"
+        + "],\"errors\":3}";
+    JSONAssert.assertEquals(expected, actual, false);
+
+    Product product = restTemplate.getForObject("/product/5", Product.class);
+    Assertions.assertThat(product.getName()).isEqualTo("iPhone");
+  }
+
+  @Test
+  public void testA_bulkProducts_2() throws Exception {
+    String request = "[null,{\"op\":\"delete\",\"id\":999}]";
+    RequestEntity<String> requestEntity = RequestEntity.post(new URI("/product/_bulk"))
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(request);
+    ResponseEntity<String> response = restTemplate.exchange(requestEntity, String.class);
+    Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    String expected = "{\"items\":["
+        + "{\"status\":400,\"error\":\"operation is required\"},"
+        + "{\"op\":\"delete\",\"status\":404}"
+        + "],\"errors\":2}";
+    JSONAssert.assertEquals(expected, response.getBody(), false);
+  }
+
+  @Test
+  public void testB_getProductsByIds() throws Exception {
+    String expected = "{\"items\":[{\"id\":3,\"name\":\"MacBook Pro\"},{\"id\":1,\"name\":\"MacBook\"}],\"total\":2,\"missing\":[42]}";
+    String actual = restTemplate.getForObject("/product?ids=3,42,1,3", String.class);
+    JSONAssert.assertEquals(expected, actual, false);
+
+    ProductIdsRequest request = new ProductIdsRequest();
+    request.setIds(Arrays.asList(3L, 42L, 1L));
+    actual = restTemplate.postForObject("/product/_mget", request, String.class);
+    JSONAssert.assertEquals(expected, actual, false);
+
+    HttpStatus status = restTemplate.getForEntity("/product?ids=1,x", String.class).getStatusCode();
+    Assertions.assertThat(status).isEqualTo(HttpStatus.BAD_REQUEST);
+  }
+
+  @Test
+  public void testC_getProductById_notModified() throws Exception {
+    ResponseEntity<String> response = restTemplate.getForEntity("/product/1", String.class);
+    String etag = response.getHeaders().getETag();
+    Assertions.assertThat(etag).isNotNull();
+
+    RequestEntity<Void> requestEntity = RequestEntity.get(new URI("/product/1")).ifNoneMatch(etag).build();
+    response = restTemplate.exchange(requestEntity, String.class);
+    Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+    Assertions.assertThat(response.getBody()).isNull();
+
+    Map<String, Object> fieldMap = new HashMap<>();
+    fieldMap.put("price", 10000);
+    restTemplate.exchange(new RequestEntity<>(fieldMap, HttpMethod.PUT, new URI("/product/1")), String.class);
+    response = restTemplate.exchange(requestEntity, String.class);
+    Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    Assertions.assertThat(response.getHeaders().getETag()).isNotEqualTo(etag);
+  }
+
+  @Test
+  public void testC_getProductList_notModified() throws Exception {
+    ResponseEntity<String> response = restTemplate.getForEntity("/product?limit=2", String.class);
+    String etag = response.getHeaders().getETag();
+    Assertions.assertThat(etag).isNotNull();
+
+    RequestEntity<Void> requestEntity = RequestEntity.get(new URI("/product?limit=2")).ifNoneMatch(etag).build();
+    response = restTemplate.exchange(requestEntity, String.class);
+    Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+
+    restTemplate.exchange("/product/5", HttpMethod.DELETE, null, String.class);
+    response = restTemplate.exchange(requestEntity, String.class);
+    Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+  }
+
+  @Test
+  public void testD_updateProduct_ifMatch() throws Exception {
+    String etag = restTemplate.getForEntity("/product/2", String.class).getHeaders().getETag();
+    Map<String, Object> fieldMap = new HashMap<>();
+    fieldMap.put("price", 7500);
+    RequestEntity<Map<String, Object>> requestEntity = RequestEntity.put(new URI("/product/2")).header(HttpHeaders.IF_MATCH, etag).body(fieldMap);
+    ResponseEntity<Product> response = restTemplate.exchange(requestEntity, Product.class);
+    Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    Assertions.assertThat(response.getBody().getPrice()).isEqualTo(7500);
+    String newEtag = response.getHeaders().getETag();
+    Assertions.assertThat(newEtag).isNotEqualTo(etag);
+
+    fieldMap.put("price", 1);
+    response = restTemplate.exchange(RequestEntity.put(new URI("/product/2")).header(HttpHeaders.IF_MATCH, etag).body(fieldMap), Product.class);
+    Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    response = restTemplate.exchange(RequestEntity.delete(new URI("/product/2")).header(HttpHeaders.IF_MATCH, etag).build(), Product.class);
+    Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    response = restTemplate.exchange(RequestEntity.put(new URI("/product/2")).header(HttpHeaders.IF_MATCH, "\"bogus\"").body(fieldMap), Product.class);
+    Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    Assertions.assertThat(restTemplate.getForObject("/product/2", Product.class).getPrice()).isEqualTo(7500);
+
+    fieldMap.put("price", 7000);
+    response = restTemplate.exchange(RequestEntity.put(new URI("/product/2")).header(HttpHeaders.IF_MATCH, newEtag).body(fieldMap), Product.class);
+    Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+  }
+
+  @Test
+  public void testD_updateProduct_ifMatch_2() throws Exception {
+    Map<String, Object> fieldMap = new HashMap<>();
+    fieldMap.put("price", 6500);
+    ResponseEntity<Product> response = restTemplate.exchange(RequestEntity.put(new URI("/product/2")).header(HttpHeaders.IF_MATCH, "*").body(fieldMap), Product.class);
+    Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    Assertions.assertThat(response.getBody().getPrice()).isEqualTo(6500);
+
+    response = restTemplate.exchange(RequestEntity.put(new URI("/product/999")).header(HttpHeaders.IF_MATCH, "*").body(fieldMap), Product.class);
+    Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    response = restTemplate.exchange(RequestEntity.delete(new URI("/product/999")).header(HttpHeaders.IF_MATCH, "*").build(), Product.class);
+    Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    response = restTemplate.exchange(RequestEntity.put(new URI("/product/999")).body(fieldMap), Product.class);
+    Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    Assertions.assertThat(response.getBody()).isNull();
+  }
+
+  @Test
+  public void testD_updateProduct_ifMatch_3() throws Exception {
+    String etag = restTemplate.getForEntity("/product/2", String.class).getHeaders().getETag();
+    String garbage = etag.substring(0, etag.length() - 1) + "-garbage\"";
+    Map<String, Object> fieldMap = new HashMap<>();
+    fieldMap.put("price", 1);
+    ResponseEntity<Product> response = restTemplate.exchange(RequestEntity.put(new URI("/product/2")).header(HttpHeaders.IF_MATCH, garbage).body(fieldMap), Product.class);
+    Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    response = restTemplate.exchange(RequestEntity.delete(new URI("/product/2")).header(HttpHeaders.IF_MATCH, garbage).build(), Product.class);
+    Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    Assertions.assertThat(restTemplate.getForObject("/product/2", Product.class).getPrice()).isNotEqualTo(1);
+
+    String cborEtag = etag.substring(0, etag.length() - 1) + "-cbor\"";
+    response = restTemplate.exchange(RequestEntity.put(new URI("/product/2")).header(HttpHeaders.IF_MATCH, cborEtag).body(fieldMap), Product.class);
+    Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+  }
+
+  @Test
+  public void testE_getCacheStats() throws Exception {
+    restTemplate.getForObject("/product/3", Product.class);
+    restTemplate.getForObject("/product/3", Product.class);
+    String json = restTemplate.getForObject("/product/_cache", String.class);
+    Assertions.assertThat((Boolean) JsonPath.read(json, "$.enabled")).isTrue();
+    Assertions.assertThat(((Number) JsonPath.read(json, "$.hits")).longValue()).isPositive();
+    Assertions.assertThat(((Number) JsonPath.read(json, "$.misses")).longValue()).isPositive();
+  }
+
+  @Test
+  public void testF_getProductById_afterBulkUpdate() throws Exception {
+    ResponseEntity<String> response = restTemplate.getForEntity("/product/3", String.class);
+    Assertions.assertThat(response.getHeaders().getContentType().isCompatibleWith(MediaType.APPLICATION_JSON)).isTrue();
+    Assertions.assertThat(response.getHeaders().getContentLength()).isEqualTo(response.getBody().length());
+
+    // the bulk endpoint does not invalidate the product's JSON, which must not be served for the new version
+    RequestEntity<String> requestEntity = RequestEntity.post(new URI("/product/_bulk"))
+        .contentType(MediaType.APPLICATION_JSON)
+        .body("[{\"op\":\"update\",\"id\":3,\"fields\":{\"price\":11000}}]");
+    restTemplate.exchange(requestEntity, String.class);
+    JSONAssert.assertEquals("{\"id\":3,\"name\":\"MacBook Pro\",\"price\":11000}",
+        restTemplate.getForObject("/product/3", String.class), false);
+  }
+
+  @Test
+  public void testG_getProductList_gzip() throws Exception {
+    RequestEntity<Void> gzipRequest = RequestEntity.get(new URI("/product")).header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate").build();
+    ResponseEntity<byte[]> gzipped = restTemplate.exchange(gzipRequest, byte[].class);
+    ResponseEntity<String> plain = restTemplate.getForEntity("/product", String.class);
+    Assertions.assertThat(gzipped.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+    Assertions.assertThat(gzipped.getHeaders().getVary()).containsExactly(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+    Assertions.assertThat(gzipped.getHeaders().getETag()).isNotEqualTo(plain.getHeaders().getETag());
+    Assertions.assertThat(plain.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+    Assertions.assertThat(gunzip(gzipped.getBody())).isEqualTo(plain.getBody());
+
+    // the view is rebuilt after a write
+    restTemplate.postForObject("/product", Collections.singletonMap("name", "Mac Pro"), String.class);
+    String json = gunzip(restTemplate.exchange(gzipRequest, byte[].class).getBody());
+    List<String> names = JsonPath.read(json, "$.items[*].name");
+    Assertions.assertThat(names).contains("Mac Pro");
+    Assertions.assertThat(restTemplate.getForObject("/product", String.class)).isEqualTo(json);
+
+    RequestEntity<Void> identityRequest = RequestEntity.get(new URI("/product")).header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, *").build();
+    Assertions.assertThat(restTemplate.exchange(identityRequest, String.class).getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+  }
+
+  private static String gunzip(byte[] bytes) throws IOException {
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+      return StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+    }
+  }
 }
@@ -0,0 +1,110 @@
+package demo.msa.product.test;
+
+import demo.msa.product.model.Product;
+import demo.msa.product.service.ProductService;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lists the catalog while writers slide windows of products forward by creating one and deleting
+ * the oldest. A point-in-time list holds either {@code WINDOW} or {@code WINDOW + 1} consecutive
+ * products of each writer; a list torn across writes holds some other number.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "product.repository=memory")
+public class ProductListStressTest {
+
+  private static final int WRITERS = 2;
+
+  private static final int READERS = 2;
+
+  private static final int WINDOW = 500;
+
+  private static final int WRITES = 20000;
+
+  @Autowired
+  private ProductService productService;
+
+  @Test
+  public void listsConsistentSnapshotsUnderWrites() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(WRITERS + READERS);
+    AtomicBoolean writing = new AtomicBoolean(true);
+    AtomicInteger lists = new AtomicInteger();
+    List<Future<?>> writers = new ArrayList<>();
+    for (int w = 0; w < WRITERS; w++) {
+      String name = "stress-" + w;
+      writers.add(executor.submit(() -> {
+        Deque<Long> window = new ArrayDeque<>();
+        for (int seq = 0; seq < WINDOW + WRITES; seq++) {
+          window.addLast(productService.createProduct(name, seq).getId());
+          if (window.size() > WINDOW) {
+            productService.deleteProductById(window.removeFirst());
+          }
+        }
+        for (Long id : window) {
+          productService.deleteProductById(id);
+        }
+      }));
+    }
+    List<Future<?>> readers = new ArrayList<>();
+    for (int r = 0; r < READERS; r++) {
+      readers.add(executor.submit(() -> {
+        while (writing.get()) {
+          checkList(productService.getProductList());
+          lists.incrementAndGet();
+        }
+      }));
+    }
+    try {
+      for (Future<?> writer : writers) {
+        writer.get();
+      }
+    } finally {
+      writing.set(false);
+    }
+    for (Future<?> reader : readers) {
+      reader.get();
+    }
+    executor.shutdown();
+    Assertions.assertThat(lists.get()).isPositive();
+    Assertions.assertThat(productService.getProductList()).hasSize(3);
+  }
+
+  private static void checkList(List<Product> productList) {
+    int[] counts = new int[WRITERS];
+    int[] minSeqs = new int[WRITERS];
+    int[] maxSeqs = new int[WRITERS];
+    for (Product product : productList) {
+      String name = product.getName();
+      if (name.startsWith("stress-")) {
+        int w = name.charAt(name.length() - 1) - '0';
+        minSeqs[w] = counts[w] == 0 ? product.getPrice() : Math.min(minSeqs[w], product.getPrice());
+        maxSeqs[w] = counts[w] == 0 ? product.getPrice() : Math.max(maxSeqs[w], product.getPrice());
+        counts[w]++;
+      }
+    }
+    for (int w = 0; w < WRITERS; w++) {
+      // the window is still filling up or already draining while the writer starts and stops
+      if (counts[w] > 0 && minSeqs[w] > 0 && maxSeqs[w] < WINDOW + WRITES - 1) {
+        Assertions.assertThat(counts[w]).as("products of writer %d", w).isBetween(WINDOW, WINDOW + 1);
+      }
+      if (counts[w] > 0) {
+        Assertions.assertThat(maxSeqs[w] - minSeqs[w] + 1).as("sequence span of writer %d", w).isEqualTo(counts[w]);
+      }
+    }
+  }
+}
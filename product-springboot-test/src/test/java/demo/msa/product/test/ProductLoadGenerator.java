@@ -0,0 +1,613 @@
+package demo.msa.product.test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import demo.msa.product.ProductApplication;
+import demo.msa.product.model.Product;
+import demo.msa.product.repository.ProductRepository;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a mix of GET, POST, PUT, DELETE and LIST requests from concurrent clients against a
+ * running product service and reports latency percentiles and throughput per operation, recorded
+ * in HdrHistograms. Run against an embedded server with
+ *
+ * <pre>
+ * mvn -pl product-springboot-test test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dstart-class=demo.msa.product.test.ProductLoadGenerator \
+ *     -Dexec.args="clients=16 rate=2000 duration=30 mix=get:70,post:10,put:15,delete:5"
+ * </pre>
+ *
+ * or add {@code url=http://host:port} to load a server that is already running, such as the
+ * product-reactive one for a comparison on the same harness. The options are
+ * {@code clients}, {@code rate} (requests per second, 0 for closed loop), {@code duration} and
+ * {@code warmup} in seconds, {@code products} to seed, {@code mix}, {@code gzip} and
+ * {@code hgrm}, a directory to write the percentile distribution of each operation to. For the
+ * embedded server, {@code latency} adds that many milliseconds to every repository call, to stand
+ * in for storage behind a network, and arguments starting with {@code --} are passed to the
+ * application, e.g. {@code --product.async.enabled=true}.
+ *
+ * <p>In closed loop, each client sends its next request when the previous one returns, so a slow
+ * response also delays the requests that would have been sent meanwhile and their latency is never
+ * measured. In open loop, requests are due at a constant rate whatever the server does, and latency
+ * counts from when a request was due rather than from when a free client sent it, so queueing
+ * behind a stall shows up in the percentiles instead of being omitted.
+ *
+ * <p>GETs and PUTs go to the seeded products. DELETEs remove products the POSTs created, and send a
+ * POST instead while there are none. LISTs, which are not in the default mix, get the whole
+ * catalog.
+ *
+ * <p>If the server exposes {@code process_cpu_seconds_total} on {@code /metrics}, the report also
+ * gives its CPU time per request over the measured interval, e.g. {@code mix=get:100} for the
+ * cost of a read; the CPU time of an embedded server includes the generator's.
+ */
+public class ProductLoadGenerator {
+
+  /**
+   * The single-product operations, and LIST, a GET of the whole catalog.
+   */
+  public enum Operation {
+    GET, POST, PUT, DELETE, LIST
+  }
+
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+
+  private static final String CPU_METRIC = "process_cpu_seconds_total";
+
+  private final String baseUrl;
+
+  private int clients = 16;
+
+  private int rate;
+
+  private long durationMillis = 10000;
+
+  private long warmupMillis = 2000;
+
+  private int products = 1000;
+
+  private final Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+
+  private final List<Long> seededIds = new ArrayList<>();
+
+  private final ConcurrentLinkedDeque<Long> createdIds = new ConcurrentLinkedDeque<>();
+
+  private ThreadFactory threadFactory = Executors.defaultThreadFactory();
+
+  private boolean gzip;
+
+  public ProductLoadGenerator(String baseUrl) {
+    this.baseUrl = baseUrl;
+    mix.put(Operation.GET, 70);
+    mix.put(Operation.POST, 10);
+    mix.put(Operation.PUT, 15);
+    mix.put(Operation.DELETE, 5);
+    mix.put(Operation.LIST, 0);
+  }
+
+  public ProductLoadGenerator clients(int clients) {
+    this.clients = clients;
+    return this;
+  }
+
+  /**
+   * Sends requests at a constant rate per second across all clients, or in closed loop if 0.
+   */
+  public ProductLoadGenerator rate(int rate) {
+    this.rate = rate;
+    return this;
+  }
+
+  public ProductLoadGenerator duration(long duration, TimeUnit unit) {
+    this.durationMillis = unit.toMillis(duration);
+    return this;
+  }
+
+  public ProductLoadGenerator warmup(long warmup, TimeUnit unit) {
+    this.warmupMillis = unit.toMillis(warmup);
+    return this;
+  }
+
+  public ProductLoadGenerator products(int products) {
+    this.products = products;
+    return this;
+  }
+
+  /**
+   * Sets the relative weight of an operation in the mix; 0 leaves it out.
+   */
+  public ProductLoadGenerator mix(Operation operation, int weight) {
+    mix.put(operation, weight);
+    return this;
+  }
+
+  /**
+   * Creates the client threads, one per client, e.g. virtual threads to drive many thousands of
+   * connections.
+   */
+  public ProductLoadGenerator threadFactory(ThreadFactory threadFactory) {
+    this.threadFactory = threadFactory;
+    return this;
+  }
+
+  /**
+   * Sends {@code Accept-Encoding: gzip} with every request; the bodies are read but not decoded.
+   */
+  public ProductLoadGenerator gzip(boolean gzip) {
+    this.gzip = gzip;
+    return this;
+  }
+
+  public Report run() throws Exception {
+    Operation[] operations = Operation.values();
+    int[] weights = new int[operations.length];
+    int totalWeight = 0;
+    for (Operation operation : operations) {
+      totalWeight += mix.getOrDefault(operation, 0);
+      weights[operation.ordinal()] = totalWeight;
+    }
+    if (totalWeight <= 0) {
+      throw new IllegalArgumentException("The mix has no operations");
+    }
+    int weightSum = totalWeight;
+    ExecutorService executor = Executors.newFixedThreadPool(clients, threadFactory);
+    try {
+      seed(executor);
+      Report report = new Report(rate, clients);
+      long intervalNanos = rate > 0 ? TimeUnit.SECONDS.toNanos(1) / rate : 0;
+      AtomicLong sequence = new AtomicLong();
+      long start = System.nanoTime();
+      long measureFrom = start + TimeUnit.MILLISECONDS.toNanos(warmupMillis);
+      long end = measureFrom + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+      List<Future<?>> futures = new ArrayList<>();
+      for (int c = 0; c < clients; c++) {
+        futures.add(executor.submit(() -> {
+          while (true) {
+            long due;
+            if (intervalNanos > 0) {
+              due = start + sequence.getAndIncrement() * intervalNanos;
+              if (due >= end) {
+                return null;
+              }
+              long wait;
+              while ((wait = due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+              }
+            } else {
+              due = System.nanoTime();
+              if (due >= end) {
+                return null;
+              }
+            }
+            int pick = ThreadLocalRandom.current().nextInt(weightSum);
+            Operation operation = operations[0];
+            while (weights[operation.ordinal()] <= pick) {
+              operation = operations[operation.ordinal() + 1];
+            }
+            long sent = System.nanoTime();
+            boolean ok;
+            try {
+              operation = execute(operation);
+              ok = true;
+            } catch (IOException | RuntimeException e) {
+              ok = false;
+            }
+            long done = System.nanoTime();
+            if (due >= measureFrom) {
+              report.record(operation, ok, (done - due) / 1000, (done - sent) / 1000);
+            }
+          }
+        }));
+      }
+      long wait;
+      while ((wait = measureFrom - System.nanoTime()) > 0) {
+        LockSupport.parkNanos(wait);
+      }
+      double cpuFrom = serverCpuSeconds();
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      double cpuTo = serverCpuSeconds();
+      // requests due before the end may complete after it, so throughput counts until the last one
+      report.finish(System.nanoTime() - measureFrom, cpuFrom >= 0 && cpuTo >= 0 ? cpuTo - cpuFrom : -1);
+      return report;
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Creates the products that are not seeded yet from all clients at once, so seeding a slow
+   * server does not take a round trip per product.
+   */
+  private void seed(ExecutorService executor) throws Exception {
+    List<Future<Long>> futures = new ArrayList<>();
+    for (int i = seededIds.size(); i < products; i++) {
+      futures.add(executor.submit(() -> create()));
+    }
+    for (Future<Long> future : futures) {
+      seededIds.add(future.get());
+    }
+  }
+
+  /**
+   * Returns the CPU time of the server process from its {@code /metrics}, or -1 if it does not
+   * expose it.
+   */
+  private double serverCpuSeconds() {
+    String metrics;
+    try {
+      metrics = new String(request("GET", "/metrics", null), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      return -1;
+    }
+    for (String line : metrics.split("\n")) {
+      if (line.startsWith(CPU_METRIC + " ")) {
+        return Double.parseDouble(line.substring(CPU_METRIC.length() + 1).trim());
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Runs the operation and returns the one that was run, which is a POST for a DELETE with no
+   * created products left.
+   *
+   * @throws IOException if the request fails or is not answered with 2xx
+   */
+  private Operation execute(Operation operation) throws IOException {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    switch (operation) {
+      case GET:
+        request("GET", "/product/" + seededIds.get(random.nextInt(seededIds.size())), null);
+        return operation;
+      case PUT:
+        request("PUT", "/product/" + seededIds.get(random.nextInt(seededIds.size())),
+            "{\"price\":" + random.nextInt(10000) + "}");
+        return operation;
+      case DELETE:
+        Long id = createdIds.pollFirst();
+        if (id != null) {
+          request("DELETE", "/product/" + id, null);
+          return operation;
+        }
+        // fall through
+      case POST:
+        createdIds.addLast(create());
+        return Operation.POST;
+      case LIST:
+        request("GET", "/product", null);
+        return operation;
+      default:
+        throw new IllegalArgumentException("Unknown operation " + operation);
+    }
+  }
+
+  private long create() throws IOException {
+    String name = "load-" + ThreadLocalRandom.current().nextInt(1000000);
+    byte[] body = request("POST", "/product", "{\"name\":\"" + name + "\",\"price\":" + ThreadLocalRandom.current().nextInt(10000) + "}");
+    return objectMapper.readValue(body, Product.class).getId();
+  }
+
+  /**
+   * Sends the request on a kept-alive connection and returns the response body.
+   */
+  private byte[] request(String method, String path, String json) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+    connection.setRequestMethod(method);
+    if (gzip) {
+      connection.setRequestProperty("Accept-Encoding", "gzip");
+    }
+    if (json != null) {
+      connection.setDoOutput(true);
+      connection.setRequestProperty("Content-Type", "application/json");
+      try (OutputStream out = connection.getOutputStream()) {
+        out.write(json.getBytes(StandardCharsets.UTF_8));
+      }
+    }
+    int status = connection.getResponseCode();
+    // read the body to the end so the connection goes back to the keep-alive cache
+    InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    if (in != null) {
+      try (InputStream stream = in) {
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = stream.read(buffer)) != -1) {
+          body.write(buffer, 0, read);
+        }
+      }
+    }
+    if (status / 100 != 2) {
+      throw new IOException(method + " " + path + " answered " + status);
+    }
+    return body.toByteArray();
+  }
+
+  /**
+   * Latency in microseconds per operation: from when the request was due, and the service time
+   * from when it was sent. The two only differ in open loop.
+   */
+  public static class Report {
+
+    private final int rate;
+
+    private final int clients;
+
+    private final Map<Operation, Recorder> latencyRecorders = new EnumMap<>(Operation.class);
+
+    private final Map<Operation, Recorder> serviceRecorders = new EnumMap<>(Operation.class);
+
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+
+    private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+
+    private final Map<Operation, Histogram> serviceTimes = new EnumMap<>(Operation.class);
+
+    private long elapsedNanos;
+
+    private double cpuSeconds = -1;
+
+    Report(int rate, int clients) {
+      this.rate = rate;
+      this.clients = clients;
+      for (Operation operation : Operation.values()) {
+        latencyRecorders.put(operation, new Recorder(3));
+        serviceRecorders.put(operation, new Recorder(3));
+        errors.put(operation, new LongAdder());
+      }
+    }
+
+    void record(Operation operation, boolean ok, long latencyMicros, long serviceMicros) {
+      if (ok) {
+        latencyRecorders.get(operation).recordValue(latencyMicros);
+        serviceRecorders.get(operation).recordValue(serviceMicros);
+      } else {
+        errors.get(operation).increment();
+      }
+    }
+
+    void finish(long elapsedNanos, double cpuSeconds) {
+      this.elapsedNanos = elapsedNanos;
+      this.cpuSeconds = cpuSeconds;
+      for (Operation operation : Operation.values()) {
+        latencies.put(operation, latencyRecorders.get(operation).getIntervalHistogram());
+        serviceTimes.put(operation, serviceRecorders.get(operation).getIntervalHistogram());
+      }
+    }
+
+    public Histogram getLatency(Operation operation) {
+      return latencies.get(operation);
+    }
+
+    public Histogram getServiceTime(Operation operation) {
+      return serviceTimes.get(operation);
+    }
+
+    /**
+     * Returns the latency of all operations together.
+     */
+    public Histogram getLatency() {
+      Histogram total = new Histogram(3);
+      for (Histogram histogram : latencies.values()) {
+        total.add(histogram);
+      }
+      return total;
+    }
+
+    public long getErrors(Operation operation) {
+      return errors.get(operation).sum();
+    }
+
+    public long getErrors() {
+      long total = 0;
+      for (LongAdder adder : errors.values()) {
+        total += adder.sum();
+      }
+      return total;
+    }
+
+    /**
+     * Returns the completed requests per second.
+     */
+    public double getThroughput() {
+      return getLatency().getTotalCount() * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Returns the server's CPU time per completed request in microseconds, or NaN if the server
+     * does not expose its CPU time. With an embedded server, this includes the generator's own CPU
+     * time.
+     */
+    public double getCpuMicrosPerRequest() {
+      long count = getLatency().getTotalCount();
+      return cpuSeconds >= 0 && count > 0 ? cpuSeconds * 1e6 / count : Double.NaN;
+    }
+
+    public void print(PrintStream out) {
+      out.printf("%s, %d clients, %.1f s%n",
+          rate > 0 ? "open loop at " + rate + " requests/s" : "closed loop", clients, elapsedNanos / 1e9);
+      out.printf("%-8s %9s %7s %10s %9s %9s %9s %9s %12s%n",
+          "", "count", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "p99 svc ms");
+      for (Operation operation : Operation.values()) {
+        print(out, operation.name(), latencies.get(operation), serviceTimes.get(operation), getErrors(operation));
+      }
+      Histogram serviceTime = new Histogram(3);
+      for (Histogram histogram : serviceTimes.values()) {
+        serviceTime.add(histogram);
+      }
+      print(out, "ALL", getLatency(), serviceTime, getErrors());
+      if (cpuSeconds >= 0) {
+        out.printf("server CPU %.1f us/request%n", getCpuMicrosPerRequest());
+      }
+    }
+
+    private void print(PrintStream out, String name, Histogram latency, Histogram serviceTime, long errors) {
+      out.printf("%-8s %9d %7d %10.0f %9.3f %9.3f %9.3f %9.3f %12.3f%n", name, latency.getTotalCount(), errors,
+          latency.getTotalCount() * 1e9 / elapsedNanos,
+          latency.getValueAtPercentile(50) / 1000.0, latency.getValueAtPercentile(99) / 1000.0,
+          latency.getValueAtPercentile(99.9) / 1000.0, latency.getMaxValue() / 1000.0,
+          serviceTime.getValueAtPercentile(99) / 1000.0);
+    }
+
+    /**
+     * Writes the latency distribution of each operation and of all together to
+     * {@code <operation>.hgrm} files in milliseconds, the format the HdrHistogram plotter reads.
+     */
+    public void writePercentiles(File directory) throws IOException {
+      if (!directory.isDirectory() && !directory.mkdirs()) {
+        throw new IOException("Cannot create directory " + directory);
+      }
+      Map<String, Histogram> histograms = new LinkedHashMap<>();
+      for (Operation operation : Operation.values()) {
+        histograms.put(operation.name().toLowerCase(), latencies.get(operation));
+      }
+      histograms.put("all", getLatency());
+      for (Map.Entry<String, Histogram> histogram : histograms.entrySet()) {
+        try (PrintStream out = new PrintStream(new File(directory, histogram.getKey() + ".hgrm"), "UTF-8")) {
+          histogram.getValue().outputPercentileDistribution(out, 1000.0);
+        }
+      }
+    }
+  }
+
+  /**
+   * Delays every call to the product repository by {@value #PROPERTY} milliseconds, if set.
+   */
+  static class StorageLatency implements BeanPostProcessor, EnvironmentAware {
+
+    static final String PROPERTY = "product.load.storage-latency-ms";
+
+    private long latencyMillis;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+      latencyMillis = environment.getProperty(PROPERTY, Long.class, 0L);
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+      return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+      if (latencyMillis <= 0 || !(bean instanceof ProductRepository)) {
+        return bean;
+      }
+      return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ProductRepository.class}, (proxy, method, args) -> {
+        Thread.sleep(latencyMillis);
+        try {
+          return method.invoke(bean, args);
+        } catch (InvocationTargetException e) {
+          throw e.getCause();
+        }
+      });
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    List<String> applicationArgs = new ArrayList<>();
+    applicationArgs.add("--server.port=0");
+    Map<String, String> options = options(args, applicationArgs);
+    ConfigurableApplicationContext context = null;
+    String url = options.get("url");
+    if (url == null) {
+      if (options.containsKey("latency")) {
+        applicationArgs.add("--" + StorageLatency.PROPERTY + "=" + options.get("latency"));
+      }
+      context = SpringApplication.run(new Object[]{ProductApplication.class, StorageLatency.class},
+          applicationArgs.toArray(new String[0]));
+      url = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+    }
+    try {
+      Report report = create(url, options).run();
+      report.print(System.out);
+      if (options.containsKey("hgrm")) {
+        report.writePercentiles(new File(options.get("hgrm")));
+      }
+    } finally {
+      if (context != null) {
+        context.close();
+      }
+    }
+  }
+
+  /**
+   * Parses the key=value options of {@link #main} and adds the arguments starting with
+   * {@code --} to {@code applicationArgs}.
+   */
+  static Map<String, String> options(String[] args, List<String> applicationArgs) {
+    Map<String, String> options = new HashMap<>();
+    for (String arg : args) {
+      if (arg.startsWith("--")) {
+        applicationArgs.add(arg);
+        continue;
+      }
+      int equals = arg.indexOf('=');
+      if (equals < 0) {
+        throw new IllegalArgumentException("Expected key=value, got " + arg);
+      }
+      options.put(arg.substring(0, equals), arg.substring(equals + 1));
+    }
+    return options;
+  }
+
+  /**
+   * Creates a generator with the options of {@link #main}.
+   */
+  static ProductLoadGenerator create(String url, Map<String, String> options) {
+    // keep a connection per client alive instead of the default 5
+    System.setProperty("http.maxConnections", options.getOrDefault("clients", "16"));
+    ProductLoadGenerator generator = new ProductLoadGenerator(url)
+        .clients(Integer.parseInt(options.getOrDefault("clients", "16")))
+        .rate(Integer.parseInt(options.getOrDefault("rate", "0")))
+        .duration(Long.parseLong(options.getOrDefault("duration", "10")), TimeUnit.SECONDS)
+        .warmup(Long.parseLong(options.getOrDefault("warmup", "2")), TimeUnit.SECONDS)
+        .products(Integer.parseInt(options.getOrDefault("products", "1000")))
+        .gzip(Boolean.parseBoolean(options.getOrDefault("gzip", "false")));
+    if (options.containsKey("mix")) {
+      for (Operation operation : Operation.values()) {
+        generator.mix(operation, 0);
+      }
+      for (String weight : options.get("mix").split(",")) {
+        String[] parts = weight.split(":");
+        generator.mix(Operation.valueOf(parts[0].trim().toUpperCase()), Integer.parseInt(parts[1].trim()));
+      }
+    }
+    return generator;
+  }
+}
@@ -0,0 +1,49 @@
+package demo.msa.product.test;
+
+import demo.msa.product.test.ProductLoadGenerator.Operation;
+import demo.msa.product.test.ProductLoadGenerator.Report;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.context.embedded.LocalServerPort;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.concurrent.TimeUnit;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "product.repository=memory")
+public class ProductLoadGeneratorTest {
+
+  @LocalServerPort
+  private int port;
+
+  private ProductLoadGenerator generator() {
+    return new ProductLoadGenerator("http://localhost:" + port)
+        .clients(4)
+        .products(50)
+        .mix(Operation.LIST, 5)
+        .warmup(200, TimeUnit.MILLISECONDS)
+        .duration(1, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void runsEveryOperationInClosedLoop() throws Exception {
+    Report report = generator().run();
+    Assertions.assertThat(report.getErrors()).isZero();
+    for (Operation operation : Operation.values()) {
+      Assertions.assertThat(report.getLatency(operation).getTotalCount()).as("%s requests", operation).isPositive();
+    }
+    Assertions.assertThat(report.getCpuMicrosPerRequest()).isPositive();
+  }
+
+  @Test
+  public void sendsAtTheRateInOpenLoop() throws Exception {
+    Report report = generator().rate(200).run();
+    Assertions.assertThat(report.getErrors()).isZero();
+    Assertions.assertThat(report.getLatency().getTotalCount()).isBetween(180L, 201L);
+    // latency counts from when a request was due, so it is never below the service time
+    Assertions.assertThat(report.getLatency(Operation.GET).getMaxValue())
+        .isGreaterThanOrEqualTo(report.getServiceTime(Operation.GET).getMaxValue());
+  }
+}
@@ -2,6 +2,7 @@ package demo.msa.product.test;
 
 import demo.msa.product.model.Product;
 import demo.msa.product.service.ProductService;
+import demo.msa.product.service.ProductVersionConflictException;
 import org.junit.Assert;
 import org.junit.FixMethodOrder;
 import org.junit.Test;
@@ -11,9 +12,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest
@@ -44,6 +49,23 @@ public class ProductServiceTest {
     Assert.assertEquals("product.price is wrong", 9000, product.getPrice());
   }
 
+  @Test
+  public void test3_updateProduct_2() throws Exception {
+    Map<String, Object> fieldMap = new HashMap<>();
+    fieldMap.put("price", 9000L);
+    fieldMap.put("name", "iMac Pro");
+    Product product = productService.updateProduct(4, fieldMap);
+    Assert.assertEquals("product.price is wrong", 9000, product.getPrice());
+    Assert.assertEquals("product.name is wrong", "iMac Pro", product.getName());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test3_updateProduct_3() throws Exception {
+    Map<String, Object> fieldMap = new HashMap<>();
+    fieldMap.put("created", 0L);
+    productService.updateProduct(4, fieldMap);
+  }
+
   @Test
   public void test4_deleteProductById() throws Exception {
     boolean result = productService.deleteProductById(4);
@@ -56,4 +78,69 @@ public class ProductServiceTest {
     Assert.assertNotNull("productList is null", productList);
     Assert.assertEquals("productList.size is wrong", 3, productList.size());
   }
+
+  @Test
+  public void test6_getProductListByPrice() throws Exception {
+    Map<String, Object> fieldMap = new HashMap<>();
+    fieldMap.put("price", 13000);
+    productService.updateProduct(1, fieldMap);
+    List<Product> productList = productService.getProductListByPrice(10000, 20000, null, 0, 10);
+    Assert.assertEquals("productList.size is wrong", 2, productList.size());
+    Assert.assertEquals("productList order is wrong", 3, productList.get(0).getId());
+    Assert.assertEquals("productList order is wrong", 1, productList.get(1).getId());
+    fieldMap.put("price", 10000);
+    productService.updateProduct(1, fieldMap);
+    productList = productService.getProductListByPrice(11000, 20000, null, 0, 10);
+    Assert.assertEquals("productList.size is wrong", 1, productList.size());
+  }
+
+  @Test
+  public void test7_updateProduct_ifMatch() throws Exception {
+    Product product = productService.getProductById(2);
+    Map<String, Object> fieldMap = new HashMap<>();
+    fieldMap.put("price", 7500);
+    Product updated = productService.updateProduct(2, fieldMap, product.getVersion());
+    Assert.assertTrue("version is not newer", updated.getVersion() > product.getVersion());
+    Assert.assertEquals("stored product was modified", 7000, product.getPrice());
+    try {
+      productService.updateProduct(2, fieldMap, product.getVersion());
+      Assert.fail("stale version was accepted");
+    } catch (ProductVersionConflictException e) {
+      Assert.assertEquals("current version is wrong", updated.getVersion(), e.getCurrentVersion());
+    }
+    fieldMap.put("price", 7000);
+    productService.updateProduct(2, fieldMap, updated.getVersion());
+  }
+
+  @Test
+  public void test7_updateProduct_concurrent() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      futures.add(executor.submit(() -> {
+        for (int j = 0; j < 250; j++) {
+          while (true) {
+            Product product = productService.getProductById(3);
+            Map<String, Object> fieldMap = new HashMap<>();
+            fieldMap.put("price", product.getPrice() + 1);
+            try {
+              productService.updateProduct(3, fieldMap, product.getVersion());
+              break;
+            } catch (ProductVersionConflictException e) {
+              // lost the race, read again
+            }
+          }
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+    Assert.assertEquals("product.price is wrong", 13000, productService.getProductById(3).getPrice());
+    Assert.assertEquals("price index is wrong", 1, productService.getProductListByPrice(13000, 13000, null, 0, 10).size());
+    Map<String, Object> fieldMap = new HashMap<>();
+    fieldMap.put("price", 12000);
+    productService.updateProduct(3, fieldMap);
+  }
 }
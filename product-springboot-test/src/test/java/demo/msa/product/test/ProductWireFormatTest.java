@@ -0,0 +1,160 @@
+package demo.msa.product.test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import demo.msa.product.converter.ProductMediaTypes;
+import demo.msa.product.converter.ProductProtobufHttpMessageConverter;
+import demo.msa.product.model.Product;
+import demo.msa.product.request.ProductRequest;
+import demo.msa.product.response.ProductResponse;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.RequestEntity;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.Map;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "product.repository=memory")
+public class ProductWireFormatTest {
+
+  private static final ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+
+  private static final ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+
+  private static final ProductProtobufHttpMessageConverter protobuf = new ProductProtobufHttpMessageConverter(new ProtobufMapper());
+
+  @Autowired
+  private TestRestTemplate restTemplate;
+
+  @Test
+  public void servesProductsInEachFormat() throws Exception {
+    ResponseEntity<byte[]> response = get("/product/1", ProductMediaTypes.APPLICATION_SMILE);
+    Assertions.assertThat(response.getHeaders().getContentType().isCompatibleWith(ProductMediaTypes.APPLICATION_SMILE)).isTrue();
+    Assertions.assertThat(smileMapper.readValue(response.getBody(), Product.class).getName()).isEqualTo("MacBook");
+
+    response = get("/product/1", ProductMediaTypes.APPLICATION_CBOR);
+    Assertions.assertThat(response.getHeaders().getContentType().isCompatibleWith(ProductMediaTypes.APPLICATION_CBOR)).isTrue();
+    Assertions.assertThat(cborMapper.readValue(response.getBody(), Product.class).getName()).isEqualTo("MacBook");
+
+    response = get("/product/1", ProductMediaTypes.APPLICATION_PROTOBUF);
+    Assertions.assertThat(response.getHeaders().getContentType().isCompatibleWith(ProductMediaTypes.APPLICATION_PROTOBUF)).isTrue();
+    Product product = protobuf.getReader(Product.class).readValue(response.getBody());
+    Assertions.assertThat(product.getId()).isEqualTo(1L);
+    Assertions.assertThat(product.getName()).isEqualTo("MacBook");
+  }
+
+  @Test
+  public void servesListsInEachFormat() throws Exception {
+    ProductResponse response = protobuf.getReader(ProductResponse.class)
+        .readValue(get("/product", ProductMediaTypes.APPLICATION_PROTOBUF).getBody());
+    Assertions.assertThat(response.getProductList()).isNotEmpty();
+    Assertions.assertThat(response.getTotal()).isEqualTo(response.getProductList().size());
+    Assertions.assertThat(response.getNext()).isNull();
+
+    response = cborMapper.readValue(get("/product?limit=2", ProductMediaTypes.APPLICATION_CBOR).getBody(), ProductResponse.class);
+    Assertions.assertThat(response.getProductList()).extracting("id").containsExactly(1L, 2L);
+    Assertions.assertThat(response.getNext()).isNotNull();
+  }
+
+  @Test
+  public void keepsJsonTheDefault() throws Exception {
+    for (String path : new String[]{"/product/1", "/product", "/product?limit=2"}) {
+      ResponseEntity<byte[]> response = get(path, MediaType.ALL);
+      Assertions.assertThat(response.getHeaders().getContentType().isCompatibleWith(MediaType.APPLICATION_JSON)).as(path).isTrue();
+    }
+    RequestEntity<Void> request = RequestEntity.get(new URI("/product/1"))
+        .header("Accept", "application/x-protobuf;q=0.5, application/json")
+        .build();
+    ResponseEntity<byte[]> response = restTemplate.exchange(request, byte[].class);
+    Assertions.assertThat(response.getHeaders().getContentType().isCompatibleWith(MediaType.APPLICATION_JSON)).isTrue();
+  }
+
+  @Test
+  public void readsEachFormat() throws Exception {
+    ProductRequest productRequest = new ProductRequest();
+    productRequest.setName("Mac mini");
+    productRequest.setPrice(5000);
+    RequestEntity<byte[]> request = RequestEntity.post(new URI("/product"))
+        .contentType(ProductMediaTypes.APPLICATION_CBOR)
+        .accept(ProductMediaTypes.APPLICATION_CBOR)
+        .body(cborMapper.writeValueAsBytes(productRequest));
+    Product created = cborMapper.readValue(restTemplate.exchange(request, byte[].class).getBody(), Product.class);
+    Assertions.assertThat(created.getName()).isEqualTo("Mac mini");
+
+    request = RequestEntity.put(new URI("/product/" + created.getId()))
+        .contentType(ProductMediaTypes.APPLICATION_PROTOBUF)
+        .accept(ProductMediaTypes.APPLICATION_PROTOBUF)
+        .body(protobuf.getWriter(Map.class).writeValueAsBytes(Collections.singletonMap("price", 5500)));
+    Product updated = protobuf.getReader(Product.class).readValue(restTemplate.exchange(request, byte[].class).getBody());
+    Assertions.assertThat(updated.getName()).isEqualTo("Mac mini");
+    Assertions.assertThat(updated.getPrice()).isEqualTo(5500);
+
+    request = RequestEntity.put(new URI("/product/" + created.getId()))
+        .contentType(ProductMediaTypes.APPLICATION_SMILE)
+        .body(smileMapper.writeValueAsBytes(Collections.singletonMap("name", "Mac Studio")));
+    Assertions.assertThat(restTemplate.exchange(request, Product.class).getBody().getName()).isEqualTo("Mac Studio");
+  }
+
+  @Test
+  public void tagsEachFormatApart() throws Exception {
+    for (String path : new String[]{"/product/1", "/product?limit=2", "/product?ids=1,2"}) {
+      ResponseEntity<byte[]> json = get(path, MediaType.APPLICATION_JSON);
+      ResponseEntity<byte[]> cbor = get(path, ProductMediaTypes.APPLICATION_CBOR);
+      Assertions.assertThat(cbor.getHeaders().getETag()).as(path).isNotNull().isNotEqualTo(json.getHeaders().getETag());
+      Assertions.assertThat(json.getHeaders().getVary()).as(path).contains("Accept");
+      Assertions.assertThat(cbor.getHeaders().getVary()).as(path).contains("Accept");
+
+      ResponseEntity<byte[]> notModified = restTemplate.exchange(RequestEntity.get(new URI(path))
+          .accept(ProductMediaTypes.APPLICATION_CBOR)
+          .ifNoneMatch(cbor.getHeaders().getETag())
+          .build(), byte[].class);
+      Assertions.assertThat(notModified.getStatusCode()).as(path).isEqualTo(HttpStatus.NOT_MODIFIED);
+      Assertions.assertThat(notModified.getHeaders().getVary()).as(path).contains("Accept");
+
+      ResponseEntity<byte[]> otherFormat = restTemplate.exchange(RequestEntity.get(new URI(path))
+          .accept(ProductMediaTypes.APPLICATION_CBOR)
+          .ifNoneMatch(json.getHeaders().getETag())
+          .build(), byte[].class);
+      Assertions.assertThat(otherFormat.getStatusCode()).as(path).isEqualTo(HttpStatus.OK);
+    }
+  }
+
+  @Test
+  public void matchesTheTagOfAnyFormat() throws Exception {
+    String tag = get("/product/3", ProductMediaTypes.APPLICATION_SMILE).getHeaders().getETag();
+    Assertions.assertThat(tag).endsWith("-smile\"");
+    RequestEntity<Map<String, Integer>> request = RequestEntity.put(new URI("/product/3"))
+        .header("If-Match", tag)
+        .body(Collections.singletonMap("price", 12500));
+    ResponseEntity<Product> response = restTemplate.exchange(request, Product.class);
+    Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    Assertions.assertThat(restTemplate.exchange(request, Product.class).getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+  }
+
+  @Test
+  public void rejectsTypesWithoutProtobufSchema() throws Exception {
+    ResponseEntity<byte[]> response = get("/product/_cache", ProductMediaTypes.APPLICATION_PROTOBUF);
+    Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_ACCEPTABLE);
+    // an error has no Protobuf message, so it is answered in JSON
+    Assertions.assertThat(response.getHeaders().getContentType().isCompatibleWith(MediaType.APPLICATION_JSON)).isTrue();
+    Map<?, ?> error = new ObjectMapper().readValue(response.getBody(), Map.class);
+    Assertions.assertThat(error.get("status")).isEqualTo(406);
+    Assertions.assertThat(error.get("path")).isEqualTo("/product/_cache");
+  }
+
+  private ResponseEntity<byte[]> get(String path, MediaType accept) throws Exception {
+    return restTemplate.exchange(RequestEntity.get(new URI(path)).accept(accept).build(), byte[].class);
+  }
+}
@@ -0,0 +1,94 @@
+package demo.msa.product.test;
+
+import demo.msa.product.metrics.LatencyHistogram;
+import demo.msa.product.metrics.RequestMetrics;
+import demo.msa.product.metrics.RequestMetricsFilter;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.lang.management.ManagementFactory;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class RequestMetricsTest {
+
+  @Autowired
+  private TestRestTemplate restTemplate;
+
+  @Autowired
+  private RequestMetrics requestMetrics;
+
+  @Autowired
+  private RequestMetricsFilter requestMetricsFilter;
+
+  @Test
+  public void exposesRequestHistograms() throws Exception {
+    restTemplate.getForObject("/product/1", String.class);
+    restTemplate.getForObject("/product/999999", String.class);
+    String metrics = restTemplate.getForObject("/metrics", String.class);
+    Assertions.assertThat(metrics)
+        .contains("# TYPE http_server_request_duration_seconds histogram")
+        .containsPattern("http_server_request_duration_seconds_count\\{method=\"GET\",uri=\"/product/\\{id}\",status=\"200\"} [1-9]")
+        .contains("http_server_request_duration_seconds_bucket{method=\"GET\",uri=\"/product/{id}\",status=\"200\",le=\"+Inf\"}")
+        .containsPattern("http_server_requests_in_flight [1-9]")
+        .containsPattern("product_catalog_products [1-9]")
+        .contains("product_cache_hits_total")
+        .containsPattern("process_cpu_seconds_total \\d+\\.\\d+");
+  }
+
+  @Test
+  public void recordsAsyncRequestsCompletedWithoutDispatch() throws Exception {
+    int inFlight = requestMetrics.getInFlight();
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/product/1");
+    request.setAsyncSupported(true);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    requestMetricsFilter.doFilter(request, response, (req, res) -> req.startAsync());
+    Assertions.assertThat(requestMetrics.getInFlight()).isEqualTo(inFlight + 1);
+    // as after a timeout or a client gone away, the container completes the request with no dispatch
+    response.setStatus(503);
+    request.getAsyncContext().complete();
+    Assertions.assertThat(requestMetrics.getInFlight()).isEqualTo(inFlight);
+  }
+
+  @Test
+  public void bucketsLatencies() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(100_000L);
+    histogram.record(500_000L);
+    histogram.record(700_000L);
+    histogram.record(60_000_000_000L);
+    long[] counts = histogram.getBucketCounts();
+    Assertions.assertThat(counts).hasSize(LatencyHistogram.getBounds().length + 1);
+    Assertions.assertThat(counts[0]).isEqualTo(2);
+    Assertions.assertThat(counts[1]).isEqualTo(1);
+    Assertions.assertThat(counts[counts.length - 1]).isEqualTo(1);
+    Assertions.assertThat(histogram.getSumNanos()).isEqualTo(60_001_300_000L);
+  }
+
+  @Test
+  public void recordsWithoutAllocating() {
+    RequestMetrics requestMetrics = new RequestMetrics();
+    String pattern = "/product/{id}";
+    for (int i = 0; i < 100000; i++) {
+      requestMetrics.requestStarted();
+      requestMetrics.requestFinished("GET", pattern, 200 + i % 2 * 204, i);
+    }
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long thread = Thread.currentThread().getId();
+    long before = threads.getThreadAllocatedBytes(thread);
+    for (int i = 0; i < 100000; i++) {
+      requestMetrics.requestStarted();
+      requestMetrics.requestFinished("GET", pattern, 200 + i % 2 * 204, i);
+    }
+    // allow for the bytes the measurement itself allocates
+    Assertions.assertThat(threads.getThreadAllocatedBytes(thread) - before).isLessThan(1024);
+    Assertions.assertThat(requestMetrics.getInFlight()).isZero();
+  }
+}
@@ -0,0 +1,102 @@
+package demo.msa.product.test;
+
+import com.jayway.jsonpath.JsonPath;
+import demo.msa.product.tracing.RequestTrace;
+import demo.msa.product.tracing.RequestTraces;
+import demo.msa.product.tracing.TracingFilter;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.RequestEntity;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "product.trace.sample-rate=1")
+public class RequestTracingTest {
+
+  @Autowired
+  private TestRestTemplate restTemplate;
+
+  @Autowired
+  private TracingFilter tracingFilter;
+
+  @Autowired
+  private RequestTraces requestTraces;
+
+  @Test
+  public void sendsServerTiming() throws Exception {
+    ResponseEntity<String> response = restTemplate.getForEntity("/product?limit=2", String.class);
+    Assertions.assertThat(response.getHeaders().getFirst("Server-Timing"))
+        .matches("dispatch;dur=\\d+\\.\\d{3}, service;dur=\\d+\\.\\d{3}, serialize;dur=\\d+\\.\\d{3}");
+    Assertions.assertThat(response.getHeaders().getContentLength()).isEqualTo(response.getBody().length());
+  }
+
+  @Test
+  public void sendsServerTimingOfPreSerializedProducts() throws Exception {
+    ResponseEntity<String> response = restTemplate.getForEntity("/product/1", String.class);
+    Assertions.assertThat(response.getHeaders().getFirst("Server-Timing"))
+        .matches("dispatch;dur=\\d+\\.\\d{3}, service;dur=\\d+\\.\\d{3}");
+    Assertions.assertThat(response.getHeaders().getContentLength()).isEqualTo(response.getBody().length());
+  }
+
+  @Test
+  public void timesDeserialization() throws Exception {
+    RequestEntity<?> request = RequestEntity.put(new URI("/product/2")).body(Collections.singletonMap("price", 7500));
+    ResponseEntity<String> response = restTemplate.exchange(request, String.class);
+    Assertions.assertThat(response.getHeaders().getFirst("Server-Timing")).contains("deserialize;dur=");
+  }
+
+  @Test
+  public void listsSlowestTraces() throws Exception {
+    restTemplate.getForObject("/product/1", String.class);
+    restTemplate.getForObject("/product?limit=2", String.class);
+    String json = restTemplate.getForObject("/product/_traces?limit=50", String.class);
+    List<String> uris = JsonPath.read(json, "$[*].uri");
+    Assertions.assertThat(uris).contains("/product/1", "/product");
+    List<Double> totals = JsonPath.read(json, "$[*].totalMs");
+    for (int i = 1; i < totals.size(); i++) {
+      Assertions.assertThat(totals.get(i)).isLessThanOrEqualTo(totals.get(i - 1));
+    }
+    Assertions.assertThat((Integer) JsonPath.read(json, "$[0].status")).isPositive();
+  }
+
+  @Test
+  public void keepsAsyncRequestsThatTimeOutWithoutDispatch() throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/product/timed-out");
+    request.setAsyncSupported(true);
+    tracingFilter.doFilter(request, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+    Assertions.assertThat(requestTraces.getSlowest(1000)).extracting("uri").doesNotContain("/product/timed-out");
+    // as the container does when no one completes the request in time
+    MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+    for (AsyncListener listener : asyncContext.getListeners()) {
+      listener.onTimeout(new AsyncEvent(asyncContext));
+    }
+    asyncContext.complete();
+    List<RequestTrace> traces = requestTraces.getSlowest(1000).stream()
+        .filter(trace -> trace.getUri().equals("/product/timed-out"))
+        .collect(Collectors.toList());
+    Assertions.assertThat(traces).hasSize(1);
+    Assertions.assertThat(traces.get(0).getStatus()).isEqualTo(503);
+  }
+
+  @Test
+  public void rejectsNonPositiveLimit() throws Exception {
+    Assertions.assertThat(restTemplate.getForEntity("/product/_traces?limit=0", String.class).getStatusCode())
+        .isEqualTo(HttpStatus.BAD_REQUEST);
+  }
+}
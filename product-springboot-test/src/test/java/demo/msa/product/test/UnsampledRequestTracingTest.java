@@ -0,0 +1,53 @@
+package demo.msa.product.test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+import demo.msa.product.tracing.TracingJackson2HttpMessageConverter;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {"product.trace.sample-rate=0", "product.trace.slow-threshold-ms=0"})
+public class UnsampledRequestTracingTest {
+
+  @Autowired
+  private TestRestTemplate restTemplate;
+
+  @Test
+  public void sendsNoServerTiming() throws Exception {
+    ResponseEntity<String> response = restTemplate.getForEntity("/product?limit=2", String.class);
+    Assertions.assertThat(response.getHeaders().getFirst("Server-Timing")).isNull();
+  }
+
+  @Test
+  public void keepsSlowRequestsWithTotalTimeOnly() throws Exception {
+    restTemplate.getForObject("/product?limit=2", String.class);
+    String json = restTemplate.getForObject("/product/_traces?limit=50", String.class);
+    List<String> uris = JsonPath.read(json, "$[*].uri");
+    Assertions.assertThat(uris).contains("/product");
+    Assertions.assertThat((Double) JsonPath.read(json, "$[0].totalMs")).isPositive();
+    Assertions.assertThat((Double) JsonPath.read(json, "$[0].serviceMs")).isZero();
+  }
+
+  @Test
+  public void writesUntracedJsonWithoutBuffering() throws Exception {
+    MockHttpOutputMessage message = new MockHttpOutputMessage();
+    new TracingJackson2HttpMessageConverter(new ObjectMapper())
+        .write(Collections.singletonMap("id", 1), MediaType.APPLICATION_JSON, message);
+    Assertions.assertThat(message.getBodyAsString()).isEqualTo("{\"id\":1}");
+    Assertions.assertThat(message.getHeaders().getContentLength()).isEqualTo(-1);
+    Assertions.assertThat(message.getHeaders().getFirst("Server-Timing")).isNull();
+  }
+}
@@ -0,0 +1,14 @@
+package demo.msa.product;
+
+import org.springframework.boot.SpringApplication;
+
+/**
+ * Starts {@link ProductApplication} with the Spring Boot of this module, whose Tomcat runs every
+ * request on its own virtual thread.
+ */
+public class VirtualProductApplication {
+
+  public static void main(String[] args) {
+    SpringApplication.run(ProductApplication.class, args);
+  }
+}
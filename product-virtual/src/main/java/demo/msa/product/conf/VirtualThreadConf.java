@@ -0,0 +1,24 @@
+package demo.msa.product.conf;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.Executors;
+
+@Configuration
+@ConditionalOnProperty(name = "product.virtual-threads.enabled", havingValue = "true", matchIfMissing = true)
+public class VirtualThreadConf {
+
+  /**
+   * Replaces Tomcat's request thread pool with a virtual thread per request, so a request blocked
+   * on the repository parks its virtual thread instead of holding one of a few hundred platform
+   * threads. The number of requests in progress is then only limited by
+   * {@code server.tomcat.max-connections}.
+   */
+  @Bean
+  public TomcatProtocolHandlerCustomizer<?> virtualThreadExecutor() {
+    return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+  }
+}
@@ -0,0 +1,33 @@
+package demo.msa.product.test;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Import;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Runs the controller tests of product-springboot-test against the service on virtual threads.
+ */
+@Import(VirtualProductControllerTest.ThreadController.class)
+public class VirtualProductControllerTest extends ProductControllerTest {
+
+  @Autowired
+  private TestRestTemplate restTemplate;
+
+  @Test
+  public void testZ_servesRequestsOnVirtualThreads() throws Exception {
+    Assertions.assertThat(restTemplate.getForObject("/test/thread", Boolean.class)).isTrue();
+  }
+
+  @RestController
+  static class ThreadController {
+
+    @GetMapping("/test/thread")
+    public boolean isVirtual() {
+      return Thread.currentThread().isVirtual();
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package demo.msa.product.test;
+
+import demo.msa.product.ProductApplication;
+import org.springframework.boot.SpringApplication;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares the product service on virtual threads with the same service on Tomcat's platform
+ * thread pool, under many concurrent connections to a slow repository. Start the service in one
+ * JVM, as {@code server=virtual} or {@code server=platform}, with {@code latency} milliseconds
+ * added to every repository call:
+ *
+ * <pre>
+ * mvn -pl product-virtual exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=demo.msa.product.test.VirtualThreadBenchmark \
+ *     -Dexec.args="server=virtual latency=20 --server.port=8080"
+ * </pre>
+ *
+ * and load it from another with the options of {@link ProductLoadGenerator}, whose clients then
+ * run on virtual threads too:
+ *
+ * <pre>
+ * mvn -pl product-virtual exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=demo.msa.product.test.VirtualThreadBenchmark \
+ *     -Dexec.args="url=http://localhost:8080 clients=10000 duration=30 warmup=10"
+ * </pre>
+ *
+ * <p>The two sides run in separate JVMs because each connection takes a file descriptor at both
+ * ends. Either server accepts up to 20000 connections, so that only the threads differ.
+ */
+public class VirtualThreadBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    List<String> applicationArgs = new ArrayList<>();
+    applicationArgs.add("--server.tomcat.max-connections=20000");
+    applicationArgs.add("--server.tomcat.accept-count=10000");
+    Map<String, String> options = ProductLoadGenerator.options(args, applicationArgs);
+    String server = options.get("server");
+    if (server != null) {
+      if (!server.equals("virtual") && !server.equals("platform")) {
+        throw new IllegalArgumentException("Expected server=virtual or server=platform, got " + server);
+      }
+      applicationArgs.add("--product.virtual-threads.enabled=" + server.equals("virtual"));
+      applicationArgs.add("--" + ProductLoadGenerator.StorageLatency.PROPERTY + "=" + options.getOrDefault("latency", "0"));
+      SpringApplication.run(new Class<?>[]{ProductApplication.class, ProductLoadGenerator.StorageLatency.class},
+          applicationArgs.toArray(new String[0]));
+      return;
+    }
+    String url = options.get("url");
+    if (url == null) {
+      throw new IllegalArgumentException("Expected server= or url=");
+    }
+    ProductLoadGenerator.create(url, options)
+        .threadFactory(Thread.ofVirtual().name("client-", 0).factory())
+        .run()
+        .print(System.out);
+  }
+}